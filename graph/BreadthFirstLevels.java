@@ -0,0 +1,300 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** The levels of the vertices of a graph in a breadth-first search from
+ *  one source vertex (the number of edges on a shortest path to each), as
+ *  computed by Graphs.breadthFirstLevels, together with the last edge of
+ *  one such path to each vertex.
+ *
+ *  The search is level-synchronous and runs each level across the common
+ *  ForkJoinPool.  While the frontier is small, a level is expanded top
+ *  down: the frontier vertices are split among tasks, which claim their
+ *  unreached neighbors in a shared atomic bitset.  Once the edges leaving
+ *  the frontier outnumber a fraction of those of the unreached vertices,
+ *  levels are expanded bottom up instead: the vertex ids are split among
+ *  tasks, and each unreached vertex looks among its incoming edges for one
+ *  from the frontier, stopping at the first.  The search returns to top
+ *  down when the frontier shrinks again.  (This is the direction-
+ *  optimizing search of Beamer, Asanovic, and Patterson.)
+ *
+ *  Levels and parent edges are kept in int arrays indexed by vertex id.
+ *  Levels do not depend on the scheduling of the search, but which of
+ *  several shortest paths a vertex's parent edge belongs to may.  The
+ *  graph must not change during the search, and the result reflects the
+ *  graph at the time it was computed.  VLABEL and ELABEL are the types of
+ *  vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class BreadthFirstLevels<VLabel, ELabel> {
+
+    /** The levels of the vertices of G in a breadth-first search from
+     *  SOURCE, reporting each vertex reached to VISITOR, unless it is
+     *  null. */
+    BreadthFirstLevels(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex source,
+                       LevelVisitor<VLabel, ELabel> visitor) {
+        int n = G.vertexIdBound();
+        _graph = G;
+        _source = source;
+        _visitor = visitor;
+        _levels = new int[n];
+        _parents = new int[n];
+        Arrays.fill(_levels, -1);
+        Arrays.fill(_parents, -1);
+        _reached = new AtomicLongArray((n + 63) >>> 6);
+        search();
+    }
+
+    /** Returns the source vertex of the search. */
+    public Graph<VLabel, ELabel>.Vertex source() {
+        return _source;
+    }
+
+    /** Returns the number of edges on a shortest path from source() to V,
+     *  or -1 if V is unreachable. */
+    public int level(Graph<VLabel, ELabel>.Vertex v) {
+        return v.id() < _levels.length ? _levels[v.id()] : -1;
+    }
+
+    /** Returns true iff V is reachable from source(). */
+    public boolean isReachable(Graph<VLabel, ELabel>.Vertex v) {
+        return level(v) >= 0;
+    }
+
+    /** Returns the last edge of a shortest path from source() to V, or null
+     *  if V is the source or unreachable. */
+    public Graph<VLabel, ELabel>.Edge parent(Graph<VLabel, ELabel>.Vertex v) {
+        return v.id() < _parents.length && _parents[v.id()] >= 0
+            ? _graph.edge(_parents[v.id()]) : null;
+    }
+
+    /** Returns the edges of a shortest path from source() to V, or null if
+     *  V is unreachable. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    pathTo(Graph<VLabel, ELabel>.Vertex v) {
+        if (!isReachable(v)) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> path =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Edge e = parent(v); e != null;
+             e = parent(v)) {
+            path.addFirst(e);
+            v = e.getV(v);
+        }
+        return path;
+    }
+
+    /** Returns the largest level of any vertex. */
+    public int depth() {
+        return _depth;
+    }
+
+    /** Returns the number of vertices reachable from source(), including
+     *  itself. */
+    public int reachedSize() {
+        return _reachedSize;
+    }
+
+    /** Runs the search, filling in _levels and _parents. */
+    private void search() {
+        int s = _source.id();
+        _reached.set(s >>> 6, 1L << s);
+        _levels[s] = 0;
+        if (_visitor != null) {
+            _visitor.visit(_source, 0);
+        }
+        int[] frontier = { s };
+        long frontierEdges = _graph.outDegree(_source);
+        long unreachedEdges = 0;
+        for (int id = 0; id < _levels.length; id += 1) {
+            Graph<VLabel, ELabel>.Vertex v = _graph.vertex(id);
+            if (v != null) {
+                unreachedEdges += _graph.outDegree(v);
+            }
+        }
+        unreachedEdges -= frontierEdges;
+        boolean bottomUp = false;
+        int level = 0;
+        _reachedSize = 1;
+        while (true) {
+            if (!bottomUp && frontierEdges > unreachedEdges / ALPHA) {
+                bottomUp = true;
+            } else if (bottomUp && frontier.length < _levels.length / BETA) {
+                bottomUp = false;
+            }
+            level += 1;
+            frontier = bottomUp ? bottomUpStep(frontier, level)
+                : topDownStep(frontier, level);
+            if (frontier.length == 0) {
+                break;
+            }
+            _depth = level;
+            _reachedSize += frontier.length;
+            frontierEdges = 0;
+            for (int id : frontier) {
+                frontierEdges += _graph.outDegree(_graph.vertex(id));
+            }
+            unreachedEdges -= frontierEdges;
+        }
+    }
+
+    /** Returns the ids of the vertices at level LEVEL, found from those of
+     *  the vertices in FRONTIER (at the level before) by following the edges
+     *  leaving them. */
+    private int[] topDownStep(final int[] frontier, final int level) {
+        int tasks = (frontier.length + FRONTIER_CHUNK - 1) / FRONTIER_CHUNK;
+        final int[][] found = new int[tasks][];
+        new ParallelFor() {
+            @Override
+            void apply(int i) {
+                EdgeCursor<VLabel, ELabel> cursor =
+                    new EdgeCursor<VLabel, ELabel>(_graph);
+                int[] next = new int[FRONTIER_CHUNK];
+                int count = 0;
+                int hi = Math.min(frontier.length, (i + 1) * FRONTIER_CHUNK);
+                for (int k = i * FRONTIER_CHUNK; k < hi; k += 1) {
+                    cursor.outEdges(_graph.vertex(frontier[k]));
+                    while (cursor.hasNext()) {
+                        int e = cursor.next();
+                        Graph<VLabel, ELabel>.Vertex u = cursor.target();
+                        if (claim(u.id())) {
+                            reach(u, e, level);
+                            if (count == next.length) {
+                                next = Arrays.copyOf(next, 2 * count);
+                            }
+                            next[count] = u.id();
+                            count += 1;
+                        }
+                    }
+                }
+                found[i] = Arrays.copyOf(next, count);
+            }
+        }.run(tasks);
+        return concat(found);
+    }
+
+    /** Returns the ids of the vertices at level LEVEL, found by searching
+     *  the edges entering each unreached vertex for one leaving a vertex
+     *  whose id is in FRONTIER (the vertices at the level before). */
+    private int[] bottomUpStep(int[] frontier, final int level) {
+        final long[] inFrontier = new long[_reached.length()];
+        for (int id : frontier) {
+            inFrontier[id >>> 6] |= 1L << id;
+        }
+        int tasks = (_levels.length + ID_CHUNK - 1) / ID_CHUNK;
+        final int[][] found = new int[tasks][];
+        new ParallelFor() {
+            @Override
+            void apply(int i) {
+                EdgeCursor<VLabel, ELabel> cursor =
+                    new EdgeCursor<VLabel, ELabel>(_graph);
+                int[] next = new int[64];
+                int count = 0;
+                int hi = Math.min(_levels.length, (i + 1) * ID_CHUNK);
+                for (int id = i * ID_CHUNK; id < hi; id += 1) {
+                    Graph<VLabel, ELabel>.Vertex u = _graph.vertex(id);
+                    if (u == null
+                        || (_reached.get(id >>> 6) & 1L << id) != 0) {
+                        continue;
+                    }
+                    if (_graph.isDirected()) {
+                        cursor.inEdges(u);
+                    } else {
+                        cursor.outEdges(u);
+                    }
+                    while (cursor.hasNext()) {
+                        int e = cursor.next(), w = cursor.target().id();
+                        if ((inFrontier[w >>> 6] & 1L << w) != 0) {
+                            claim(id);
+                            reach(u, e, level);
+                            if (count == next.length) {
+                                next = Arrays.copyOf(next, 2 * count);
+                            }
+                            next[count] = id;
+                            count += 1;
+                            break;
+                        }
+                    }
+                }
+                found[i] = Arrays.copyOf(next, count);
+            }
+        }.run(tasks);
+        return concat(found);
+    }
+
+    /** Marks the vertex whose id is ID as reached.  Returns true iff it was
+     *  not already reached.  May be called from several threads at once. */
+    private boolean claim(int id) {
+        int w = id >>> 6;
+        long bit = 1L << id;
+        while (true) {
+            long old = _reached.get(w);
+            if ((old & bit) != 0) {
+                return false;
+            } else if (_reached.compareAndSet(w, old, old | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /** Records that V, just claimed, is at level LEVEL and was reached
+     *  along the edge whose id is E, and reports it to the visitor. */
+    private void reach(Graph<VLabel, ELabel>.Vertex v, int e, int level) {
+        _levels[v.id()] = level;
+        _parents[v.id()] = e;
+        if (_visitor != null) {
+            _visitor.visit(v, level);
+        }
+    }
+
+    /** Returns the concatenation of PARTS. */
+    private static int[] concat(int[][] parts) {
+        int n = 0;
+        for (int[] part : parts) {
+            n += part.length;
+        }
+        int[] result = new int[n];
+        n = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, n, part.length);
+            n += part.length;
+        }
+        return result;
+    }
+
+    /** A top-down search switches to bottom up when the edges leaving the
+     *  frontier exceed 1/ALPHA of those leaving unreached vertices. */
+    private static final int ALPHA = 14;
+    /** A bottom-up search switches back to top down when the frontier
+     *  holds fewer than 1/BETA of the vertex ids. */
+    private static final int BETA = 24;
+    /** Number of frontier vertices expanded by one task, top down. */
+    private static final int FRONTIER_CHUNK = 256;
+    /** Number of vertex ids examined by one task, bottom up (a multiple of
+     *  64). */
+    private static final int ID_CHUNK = 4096;
+
+    /** The graph searched. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** The source of the search. */
+    private final Graph<VLabel, ELabel>.Vertex _source;
+    /** The callback told of each vertex reached, or null. */
+    private final LevelVisitor<VLabel, ELabel> _visitor;
+    /** Level of each vertex, by id, or -1 if unreached. */
+    private final int[] _levels;
+    /** Id of the last edge of a shortest path to each vertex, by id, or -1
+     *  for the source and unreached vertices. */
+    private final int[] _parents;
+    /** Bitset of the ids of reached vertices. */
+    private final AtomicLongArray _reached;
+    /** Largest level of any vertex. */
+    private int _depth;
+    /** Number of vertices reached. */
+    private int _reachedSize;
+
+}
@@ -0,0 +1,297 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/** An index of the connected components of a graph, which answers in
+ *  (nearly) constant time whether one vertex may be reachable from another,
+ *  so that searches between vertices that cannot be connected are rejected
+ *  without exploring the graph.
+ *
+ *  For an undirected graph, the index is a union-find structure over vertex
+ *  ids, and mayReach is exact.  For a directed graph, the index also
+ *  numbers the strongly connected components in reverse topological order
+ *  of the component graph.  Then v is certainly reachable from u if both
+ *  lie in the same strong component, and certainly unreachable if they lie
+ *  in different weak components, or if v's strong component is numbered
+ *  above u's.  In the remaining cases mayReach answers true.
+ *
+ *  The index follows changes to its graph: additions are applied
+ *  incrementally, while removals (which union-find cannot undo) cause the
+ *  index to be rebuilt, in time linear in the size of the graph, when it is
+ *  next queried.  An index that is no longer needed should be closed, as
+ *  its graph otherwise keeps it up to date (and reachable) for as long as
+ *  the graph lives.  VLABEL and ELABEL are the types of vertex and edge
+ *  labels.
+ *  @author Aleks Kamko
+ */
+public class ComponentIndex<VLabel, ELabel> {
+
+    /** An index of the components of G. */
+    public ComponentIndex(Graph<VLabel, ELabel> G) {
+        _graph = G;
+        rebuild();
+        _listener = new GraphListener<VLabel, ELabel>() {
+            @Override
+            public void vertexAdded(Graph<VLabel, ELabel>.Vertex v) {
+                addVertex(v);
+            }
+
+            @Override
+            public void edgeAdded(Graph<VLabel, ELabel>.Edge e) {
+                addEdge(e);
+            }
+
+            @Override
+            public void vertexRemoved(Graph<VLabel, ELabel>.Vertex v) {
+                _stale = true;
+            }
+
+            @Override
+            public void edgeRemoved(Graph<VLabel, ELabel>.Edge e) {
+                _stale = true;
+            }
+        };
+        G.addListener(_listener);
+    }
+
+    /** Returns the graph I index. */
+    public Graph<VLabel, ELabel> graph() {
+        return _graph;
+    }
+
+    /** Returns false if there is certainly no path from U to V, and true
+     *  otherwise.  For undirected graphs, the result is true iff such a path
+     *  exists. */
+    public boolean mayReach(Graph<VLabel, ELabel>.Vertex u,
+                            Graph<VLabel, ELabel>.Vertex v) {
+        refresh();
+        int s = u.id(), t = v.id();
+        if (find(s) != find(t)) {
+            return false;
+        }
+        if (!_graph.isDirected()) {
+            return true;
+        }
+        if (_sccStale) {
+            computeStrongComponents();
+        }
+        return _scc[t] <= _scc[s];
+    }
+
+    /** Returns true iff U and V are connected when edge directions are
+     *  ignored. */
+    public boolean connected(Graph<VLabel, ELabel>.Vertex u,
+                             Graph<VLabel, ELabel>.Vertex v) {
+        refresh();
+        return find(u.id()) == find(v.id());
+    }
+
+    /** Returns the number of components of my graph, ignoring edge
+     *  directions. */
+    public int componentCount() {
+        refresh();
+        return _count;
+    }
+
+    /** Stops following changes to my graph and releases my tables, so
+     *  that the graph no longer refers to me.  Afterwards, my queries
+     *  throw IllegalStateException.  Closing me again has no effect. */
+    public void close() {
+        if (!_closed) {
+            _graph.removeListener(_listener);
+            _closed = true;
+            _parent = _size = _scc = null;
+        }
+    }
+
+    /** Rebuilds me if my graph has had vertices or edges removed since I
+     *  was last built.  Throws IllegalStateException if I am closed. */
+    private void refresh() {
+        if (_closed) {
+            throw new IllegalStateException("component index is closed");
+        }
+        if (_stale) {
+            rebuild();
+        }
+    }
+
+    /** Recomputes all components of my graph from scratch.  Vertices and
+     *  edges are visited by id rather than through vertices() and edges(),
+     *  which may sort them. */
+    private void rebuild() {
+        int bound = _graph.vertexIdBound();
+        _parent = new int[Math.max(bound, 1)];
+        _size = new int[_parent.length];
+        _scc = new int[_parent.length];
+        _count = 0;
+        for (int id = 0; id < bound; id += 1) {
+            if (_graph.vertex(id) != null) {
+                makeSet(id);
+            }
+        }
+        for (int id = 0; id < _graph.edgeIdBound(); id += 1) {
+            Graph<VLabel, ELabel>.Edge e = _graph.edge(id);
+            if (e != null) {
+                union(e.getV0().id(), e.getV1().id());
+            }
+        }
+        _stale = false;
+        _sccStale = true;
+    }
+
+    /** Records the addition of vertex V to my graph. */
+    private void addVertex(Graph<VLabel, ELabel>.Vertex v) {
+        if (_stale) {
+            return;
+        }
+        int id = v.id();
+        if (id >= _parent.length) {
+            int n = Math.max(id + 1, 2 * _parent.length);
+            _parent = Arrays.copyOf(_parent, n);
+            _size = Arrays.copyOf(_size, n);
+            _scc = Arrays.copyOf(_scc, n);
+        }
+        makeSet(id);
+        _scc[id] = _sccCount;
+        _sccCount += 1;
+    }
+
+    /** Records the addition of edge E to my graph. */
+    private void addEdge(Graph<VLabel, ELabel>.Edge e) {
+        if (_stale) {
+            return;
+        }
+        int s = e.getV0().id(), t = e.getV1().id();
+        union(s, t);
+        if (!_sccStale && _scc[t] > _scc[s]) {
+            _sccStale = true;
+        }
+    }
+
+    /** Makes vertex id V a component by itself. */
+    private void makeSet(int v) {
+        _parent[v] = v;
+        _size[v] = 1;
+        _count += 1;
+    }
+
+    /** Returns the representative of the set containing vertex id V,
+     *  halving the path to it. */
+    private int find(int v) {
+        while (_parent[v] != v) {
+            _parent[v] = _parent[_parent[v]];
+            v = _parent[v];
+        }
+        return v;
+    }
+
+    /** Merges the sets containing vertex ids U and V. */
+    private void union(int u, int v) {
+        u = find(u);
+        v = find(v);
+        if (u == v) {
+            return;
+        }
+        if (_size[u] < _size[v]) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        _parent[v] = u;
+        _size[u] += _size[v];
+        _count -= 1;
+    }
+
+    /** Numbers the strongly connected components of my (directed) graph in
+     *  reverse topological order into _scc, using Tarjan's algorithm with an
+     *  explicit stack. */
+    @SuppressWarnings("unchecked")
+    private void computeStrongComponents() {
+        int bound = _graph.vertexIdBound();
+        int[] index = new int[bound], low = new int[bound];
+        boolean[] onStack = new boolean[bound];
+        int[] stack = new int[bound], frames = new int[bound];
+        Iterator<Graph<VLabel, ELabel>.Edge>[] edges = new Iterator[bound];
+        Arrays.fill(index, -1);
+        int counter, sp, fp;
+        counter = sp = fp = 0;
+        _sccCount = 0;
+
+        for (int r = 0; r < bound; r += 1) {
+            Graph<VLabel, ELabel>.Vertex root = _graph.vertex(r);
+            if (root == null || index[r] >= 0) {
+                continue;
+            }
+            index[root.id()] = low[root.id()] = counter;
+            counter += 1;
+            stack[sp] = root.id();
+            sp += 1;
+            onStack[root.id()] = true;
+            frames[fp] = root.id();
+            edges[fp] = _graph.outEdges(root);
+            fp += 1;
+            while (fp > 0) {
+                int v = frames[fp - 1];
+                Iterator<Graph<VLabel, ELabel>.Edge> iter = edges[fp - 1];
+                if (iter.hasNext()) {
+                    Graph<VLabel, ELabel>.Vertex w = iter.next().getV1();
+                    int id = w.id();
+                    if (index[id] < 0) {
+                        index[id] = low[id] = counter;
+                        counter += 1;
+                        stack[sp] = id;
+                        sp += 1;
+                        onStack[id] = true;
+                        frames[fp] = id;
+                        edges[fp] = _graph.outEdges(w);
+                        fp += 1;
+                    } else if (onStack[id]) {
+                        low[v] = Math.min(low[v], index[id]);
+                    }
+                    continue;
+                }
+                fp -= 1;
+                edges[fp] = null;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        sp -= 1;
+                        w = stack[sp];
+                        onStack[w] = false;
+                        _scc[w] = _sccCount;
+                    } while (w != v);
+                    _sccCount += 1;
+                }
+                if (fp > 0) {
+                    int u = frames[fp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        _sccStale = false;
+    }
+
+    /** The graph I index. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** The listener through which my graph tells me of its changes. */
+    private final GraphListener<VLabel, ELabel> _listener;
+    /** Union-find parent of each vertex id. */
+    private int[] _parent;
+    /** Size of the set rooted at each vertex id. */
+    private int[] _size;
+    /** Number of components, ignoring edge directions. */
+    private int _count;
+    /** Strong component number of each vertex id, in reverse topological
+     *  order of the component graph. */
+    private int[] _scc;
+    /** Number of strong components numbered so far. */
+    private int _sccCount;
+    /** True iff my graph has lost vertices or edges since I was built. */
+    private boolean _stale;
+    /** True iff _scc does not reflect my graph. */
+    private boolean _sccStale;
+    /** True iff I have been closed. */
+    private boolean _closed;
+
+}
@@ -0,0 +1,430 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A graph that may be built and changed by many threads at once.
+ *
+ *  Vertices and edges are kept in tables indexed by id that grow without
+ *  copying, in chunks of doubling size, so adding a vertex takes no lock.
+ *  The adjacency lists of each vertex are guarded by one of STRIPES locks,
+ *  chosen by vertex id; adding or removing an edge holds the locks of its
+ *  two ends (taken in a fixed order), so threads adding edges at different
+ *  vertices seldom wait for one another.  The numbers of vertices and
+ *  edges are kept by LongAdders rather than shared ints.
+ *
+ *  Basic queries may run concurrently with changes.  The iterations from
+ *  outEdges, inEdges, vertices, and edges are copies taken when they are
+ *  created, and are unaffected by later changes.  A vertex must not be
+ *  removed while other threads are adding edges to it.  Listeners are
+ *  notified in whichever thread makes a change, so they must themselves
+ *  tolerate concurrent calls, and may be added at any time.
+ *
+ *  The searches of Graphs (shortestPath, bidirectionalShortestPath,
+ *  shortestPathTree, and the rest) keep their state per thread, so any
+ *  number of them may run at once.  Each needs a stable graph, however:
+ *  they are not safe to run while other threads change the graph.
+ *  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+abstract class ConcurrentGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** An empty graph. */
+    ConcurrentGraph() {
+        _vertices = new Table<Vertex>();
+        _edges = new Table<Edge>();
+        _locks = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i += 1) {
+            _locks[i] = new Object();
+        }
+    }
+
+    /** Adds E, a new edge, to the adjacency lists of its ends.  Called
+     *  while holding the locks of both ends. */
+    abstract void link(Edge e);
+
+    /** Removes E from the adjacency lists of its ends.  Called while
+     *  holding the locks of both ends. */
+    abstract void unlink(Edge e);
+
+    @Override
+    public int vertexSize() {
+        return _vertexCount.intValue();
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeCount.intValue();
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        synchronized (lock(v)) {
+            return super.outDegree(v);
+        }
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        synchronized (lock(v)) {
+            return super.inDegree(v);
+        }
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        synchronized (lock(u)) {
+            return super.contains(u, v);
+        }
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        synchronized (lock(u)) {
+            return super.contains(u, v, label);
+        }
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        Vertex v = new Vertex(label, allocate(_vertexIds, _vertexBound));
+        _vertices.set(v.id(), v);
+        _vertexCount.increment();
+        _changes.increment();
+        notifyVertexAdded(v);
+        return v;
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        Edge e = new Edge(from, to, label, allocate(_edgeIds, _edgeBound));
+        Object first = lock(from), second = lock(to);
+        if (stripe(to) < stripe(from)) {
+            first = second;
+            second = lock(from);
+        }
+        synchronized (first) {
+            synchronized (second) {
+                _edges.set(e.id(), e);
+                link(e);
+            }
+        }
+        _edgeCount.increment();
+        _changes.increment();
+        notifyEdgeAdded(e);
+        return e;
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        if (!containsVertex(v)) {
+            return;
+        }
+        List<Edge> elist = new ArrayList<Edge>();
+        for (Edge e : outEdges(v)) {
+            elist.add(e);
+        }
+        for (Edge e : inEdges(v)) {
+            elist.add(e);
+        }
+        removeAll(elist);
+        if (_vertices.compareAndSet(v.id(), v, null)) {
+            _vertexIds.add(v.id());
+            _vertexCount.decrement();
+            _changes.increment();
+            notifyVertexRemoved(v);
+        }
+    }
+
+    @Override
+    public void remove(Edge e) {
+        Object first = lock(e.getV0()), second = lock(e.getV1());
+        if (stripe(e.getV1()) < stripe(e.getV0())) {
+            first = second;
+            second = lock(e.getV0());
+        }
+        synchronized (first) {
+            synchronized (second) {
+                if (!_edges.compareAndSet(e.id(), e, null)) {
+                    return;
+                }
+                unlink(e);
+            }
+        }
+        _edgeIds.add(e.id());
+        _edgeCount.decrement();
+        _changes.increment();
+        notifyEdgeRemoved(e);
+    }
+
+    @Override
+    public void remove(Vertex v1, Vertex v2) {
+        List<Edge> elist = new ArrayList<Edge>();
+        for (Edge e : outEdges(v1)) {
+            if (e.getV(v1) == v2) {
+                elist.add(e);
+            }
+        }
+        removeAll(elist);
+    }
+
+    @Override
+    void removeAll(Collection<? extends Edge> edges) {
+        for (Edge e : edges) {
+            remove(e);
+        }
+    }
+
+    @Override
+    void reserve(int vertices, int edges) {
+    }
+
+    @Override
+    int vertexIdBound() {
+        return _vertexBound.get();
+    }
+
+    @Override
+    int edgeIdBound() {
+        return _edgeBound.get();
+    }
+
+    @Override
+    Vertex vertex(int id) {
+        return id >= 0 ? _vertices.get(id) : null;
+    }
+
+    @Override
+    Edge edge(int id) {
+        return id >= 0 ? _edges.get(id) : null;
+    }
+
+    /** Returns the Kth outgoing edge of V, or null if V now has no more
+     *  than K outgoing edges. */
+    @Override
+    Edge outEdge(Vertex v, int k) {
+        synchronized (lock(v)) {
+            return k < super.outDegree(v) ? super.outEdge(v, k) : null;
+        }
+    }
+
+    /** Returns the Kth incoming edge of V, or null if V now has no more
+     *  than K incoming edges. */
+    @Override
+    Edge inEdge(Vertex v, int k) {
+        synchronized (lock(v)) {
+            return k < super.inDegree(v) ? super.inEdge(v, k) : null;
+        }
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        long stamp = _changes.sum();
+        Cached<Vertex> cached = _vertexOrder;
+        if (cached == null || cached.stamp != stamp) {
+            List<Vertex> order = new ArrayList<Vertex>();
+            int bound = vertexIdBound();
+            for (int id = 0; id < bound; id += 1) {
+                Vertex v = _vertices.get(id);
+                if (v != null) {
+                    order.add(v);
+                }
+            }
+            Collections.sort(order, vertexComparator());
+            cached = _vertexOrder = new Cached<Vertex>(order, stamp);
+        }
+        return Iteration.iteration(cached.items);
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        long stamp = _changes.sum();
+        Cached<Edge> cached = _edgeOrder;
+        if (cached == null || cached.stamp != stamp) {
+            List<Edge> order = new ArrayList<Edge>();
+            int bound = edgeIdBound();
+            for (int id = 0; id < bound; id += 1) {
+                Edge e = _edges.get(id);
+                if (e != null) {
+                    order.add(e);
+                }
+            }
+            Comparator<Edge> comparator = _edgeComparator;
+            if (comparator != null) {
+                Collections.sort(order, comparator);
+            }
+            cached = _edgeOrder = new Cached<Edge>(order, stamp);
+        }
+        return Iteration.iteration(cached.items);
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        List<Edge> result = new ArrayList<Edge>();
+        synchronized (lock(v)) {
+            for (Edge e : super.outEdges(v)) {
+                result.add(e);
+            }
+        }
+        return Iteration.iteration(result);
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        List<Edge> result = new ArrayList<Edge>();
+        synchronized (lock(v)) {
+            for (Edge e : super.inEdges(v)) {
+                result.add(e);
+            }
+        }
+        return Iteration.iteration(result);
+    }
+
+    @Override
+    public void orderEdges(Comparator<ELabel> comparator) {
+        _edgeComparator = edgeComparator(comparator);
+        _changes.increment();
+    }
+
+    /** Returns an unused id, taken from FREE if possible and otherwise
+     *  from BOUND, which is then advanced. */
+    private static int allocate(ConcurrentLinkedQueue<Integer> free,
+                                AtomicInteger bound) {
+        Integer id = free.poll();
+        return id != null ? id : bound.getAndIncrement();
+    }
+
+    /** Returns the number of the lock guarding the adjacency lists of V. */
+    private int stripe(Vertex v) {
+        return (v.id() * 0x9E3779B9) >>> (32 - STRIPE_BITS);
+    }
+
+    /** Returns the lock guarding the adjacency lists of V. */
+    private Object lock(Vertex v) {
+        return _locks[stripe(v)];
+    }
+
+    /** A list of my vertices or edges, in the order delivered by vertices()
+     *  or edges(), and the value of _changes for which it was computed. */
+    private static class Cached<T> {
+
+        /** A cache of ITEMS, computed when _changes was STAMP. */
+        Cached(List<T> items, long stamp) {
+            this.items = items;
+            this.stamp = stamp;
+        }
+
+        /** The cached items. */
+        private final List<T> items;
+        /** The value of _changes before ITEMS were gathered. */
+        private final long stamp;
+    }
+
+    /** A table indexed by id that may be read and written by many threads.
+     *  Its entries are kept in chunks of FIRST, 2 * FIRST, 4 * FIRST, ...
+     *  entries, created as needed, so it grows without copying. */
+    private static class Table<T> {
+
+        /** An empty table. */
+        Table() {
+            _chunks = new AtomicReferenceArray<AtomicReferenceArray<T>>(
+                CHUNKS);
+        }
+
+        /** Returns the entry for ID, or null if there is none. */
+        T get(int id) {
+            AtomicReferenceArray<T> chunk = _chunks.get(chunkIndex(id));
+            return chunk == null ? null : chunk.get(offset(id));
+        }
+
+        /** Makes VALUE the entry for ID. */
+        void set(int id, T value) {
+            chunk(id).set(offset(id), value);
+        }
+
+        /** Makes VALUE the entry for ID if that is now EXPECTED, returning
+         *  true iff it does so. */
+        boolean compareAndSet(int id, T expected, T value) {
+            return chunk(id).compareAndSet(offset(id), expected, value);
+        }
+
+        /** Returns the chunk holding the entry for ID, creating it if
+         *  needed. */
+        private AtomicReferenceArray<T> chunk(int id) {
+            int k = chunkIndex(id);
+            AtomicReferenceArray<T> chunk = _chunks.get(k);
+            if (chunk == null) {
+                _chunks.compareAndSet(k, null,
+                                      new AtomicReferenceArray<T>(FIRST << k));
+                chunk = _chunks.get(k);
+            }
+            return chunk;
+        }
+
+        /** Returns the number of the chunk holding the entry for ID. */
+        private static int chunkIndex(int id) {
+            return 31 - Integer.numberOfLeadingZeros(id + FIRST) - FIRST_BITS;
+        }
+
+        /** Returns the position of the entry for ID within its chunk. */
+        private static int offset(int id) {
+            return (id + FIRST) - Integer.highestOneBit(id + FIRST);
+        }
+
+        /** Log base 2 of the size of the first chunk. */
+        private static final int FIRST_BITS = 4;
+        /** Size of the first chunk. */
+        private static final int FIRST = 1 << FIRST_BITS;
+        /** Number of chunks, enough for all non-negative int ids. */
+        private static final int CHUNKS = 32 - FIRST_BITS;
+
+        /** My chunks, null until first needed. */
+        private final AtomicReferenceArray<AtomicReferenceArray<T>> _chunks;
+    }
+
+    /** Log base 2 of STRIPES. */
+    private static final int STRIPE_BITS = 8;
+    /** Number of locks guarding adjacency lists. */
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    /** My vertices, indexed by id (null for free ids). */
+    private final Table<Vertex> _vertices;
+    /** My edges, indexed by id (null for free ids). */
+    private final Table<Edge> _edges;
+    /** Locks guarding the adjacency lists of my vertices. */
+    private final Object[] _locks;
+    /** One more than the largest vertex id handed out. */
+    private final AtomicInteger _vertexBound = new AtomicInteger();
+    /** One more than the largest edge id handed out. */
+    private final AtomicInteger _edgeBound = new AtomicInteger();
+    /** Released vertex ids, available for reuse. */
+    private final ConcurrentLinkedQueue<Integer> _vertexIds =
+        new ConcurrentLinkedQueue<Integer>();
+    /** Released edge ids, available for reuse. */
+    private final ConcurrentLinkedQueue<Integer> _edgeIds =
+        new ConcurrentLinkedQueue<Integer>();
+    /** Number of my vertices. */
+    private final LongAdder _vertexCount = new LongAdder();
+    /** Number of my edges. */
+    private final LongAdder _edgeCount = new LongAdder();
+    /** Orders edges(), which are in id order if null. */
+    private volatile Comparator<Edge> _edgeComparator;
+    /** Number of changes made to me.  Each change counts itself only
+     *  after it is complete, so a list gathered after reading this count
+     *  reflects at least all changes counted. */
+    private final LongAdder _changes = new LongAdder();
+    /** My vertices in the order delivered by vertices(), or null if not
+     *  yet computed. */
+    private volatile Cached<Vertex> _vertexOrder;
+    /** My edges in the order delivered by edges(), or null if not yet
+     *  computed. */
+    private volatile Cached<Edge> _edgeOrder;
+
+}
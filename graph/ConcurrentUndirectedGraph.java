@@ -0,0 +1,33 @@
+package graph;
+
+/** An undirected graph with vertices labeled with VLABEL and edges labeled
+ *  with ELABEL that may be built and changed by many threads at once, as
+ *  described for ConcurrentGraph.
+ *  @author Aleks Kamko
+ */
+public class ConcurrentUndirectedGraph<VLabel, ELabel>
+    extends ConcurrentGraph<VLabel, ELabel> {
+
+    /** An empty graph. */
+    public ConcurrentUndirectedGraph() {
+        super();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return false;
+    }
+
+    @Override
+    void link(Edge e) {
+        e.getV0().addOutgoingEdge(e);
+        e.getV1().addEdge(e);
+    }
+
+    @Override
+    void unlink(Edge e) {
+        e.getV0().removeOutgoing(e);
+        e.getV1().removeEdge(e);
+    }
+
+}
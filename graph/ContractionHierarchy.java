@@ -0,0 +1,731 @@
+package graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/** A contraction hierarchy over a fixed graph: a preprocessed form that
+ *  answers shortest-path queries by searching only "upward" from each end.
+ *
+ *  Preprocessing contracts the vertices one at a time in an order chosen by
+ *  a heuristic, adding a shortcut arc (u, w) whenever contracting v removes
+ *  the only shortest path u -> v -> w.  A vertex's rank is its position in
+ *  that order.  A query then runs a bidirectional Dijkstra search in which
+ *  the forward search only follows arcs to higher-ranked vertices and the
+ *  backward search only follows arcs from higher-ranked vertices.  Shortcuts
+ *  are unpacked into the original edges, so results are paths in the
+ *  original graph.
+ *
+ *  A hierarchy reflects the graph and edge weights at the time it was
+ *  built, and the graph must not be modified while it is in use.  It may be
+ *  saved with write and restored with read against the same graph (built
+ *  the same way, with the same edge weights).  Queries on one hierarchy
+ *  may run in many threads at once.  VLABEL and ELABEL are the types of
+ *  vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class ContractionHierarchy<VLabel, ELabel> {
+
+    /** A hierarchy for G, taking the weight of each edge from its label
+     *  according to EWEIGHTER. */
+    public ContractionHierarchy(Graph<VLabel, ELabel> G,
+                                Weighting<? super ELabel> eweighter) {
+        this(G, eweighter, true);
+    }
+
+    /** A hierarchy for G with its vertices and arcs indexed and weighted
+     *  according to EWEIGHTER, and contracted iff CONTRACT. */
+    private ContractionHierarchy(Graph<VLabel, ELabel> G,
+                                 Weighting<? super ELabel> eweighter,
+                                 boolean contract) {
+        _graph = G;
+        _bound = G.vertexIdBound();
+        _vertices = newVertexArray(_bound);
+        int m = 0;
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _vertices[v.id()] = v;
+            m += G.outDegree(v);
+        }
+
+        _edges = newEdgeArray(m);
+        _tail = new int[m];
+        _head = new int[m];
+        _weight = new double[m];
+        _child1 = new int[m];
+        _child2 = new int[m];
+        for (Graph<VLabel, ELabel>.Vertex v : _vertices) {
+            if (v == null) {
+                continue;
+            }
+            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
+                _edges[_arcCount] = e;
+                addArc(v.id(), e.getV(v).id(), 0, -1, -1);
+            }
+        }
+        _originalArcs = _arcCount;
+        for (int a = 0; a < _originalArcs; a += 1) {
+            _weight[a] = G.weight(_edges[a], eweighter);
+        }
+        _checksum = Graphs.checksum(G, eweighter);
+        _rank = new int[_bound];
+        Arrays.fill(_rank, -1);
+        _queries = new ThreadLocal<Query>() {
+            @Override
+            protected Query initialValue() {
+                return new Query();
+            }
+        };
+        if (contract) {
+            contract();
+            buildSearchGraphs();
+        }
+    }
+
+    /** Returns the hierarchy for G, whose edges are weighted by EWEIGHTER,
+     *  previously saved by write on INPUT.  G must have been built the same
+     *  way as the graph the hierarchy was saved from.  Throws IOException on
+     *  read errors or if the saved hierarchy does not match G: if any
+     *  vertex, edge, or edge weight has changed since it was saved. */
+    public static <VLabel, ELabel> ContractionHierarchy<VLabel, ELabel>
+    read(InputStream input, Graph<VLabel, ELabel> G,
+         Weighting<? super ELabel> eweighter) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        ContractionHierarchy<VLabel, ELabel> result =
+            new ContractionHierarchy<VLabel, ELabel>(G, eweighter, false);
+        if (in.readInt() != MAGIC || in.readInt() != result._bound
+            || in.readInt() != result._originalArcs
+            || in.readLong() != result._checksum) {
+            throw new IOException("hierarchy does not match graph");
+        }
+        for (int v = 0; v < result._bound; v += 1) {
+            result._rank[v] = in.readInt();
+            if ((result._rank[v] < 0) != (result._vertices[v] == null)) {
+                throw new IOException("hierarchy does not match graph");
+            }
+        }
+        int shortcuts = in.readInt();
+        for (int i = 0; i < shortcuts; i += 1) {
+            int tail = in.readInt(), head = in.readInt();
+            double weight = in.readDouble();
+            int child1 = in.readInt(), child2 = in.readInt();
+            if (tail < 0 || tail >= result._bound
+                || result._vertices[tail] == null
+                || head < 0 || head >= result._bound
+                || result._vertices[head] == null
+                || child1 < 0 || child1 >= result._arcCount
+                || child2 < 0 || child2 >= result._arcCount) {
+                throw new IOException("malformed hierarchy");
+            }
+            result.addArc(tail, head, weight, child1, child2);
+        }
+        result.buildSearchGraphs();
+        return result;
+    }
+
+    /** Saves me on OUTPUT in a form that read can restore. */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(_bound);
+        out.writeInt(_originalArcs);
+        out.writeLong(_checksum);
+        for (int v = 0; v < _bound; v += 1) {
+            out.writeInt(_rank[v]);
+        }
+        out.writeInt(_arcCount - _originalArcs);
+        for (int a = _originalArcs; a < _arcCount; a += 1) {
+            out.writeInt(_tail[a]);
+            out.writeInt(_head[a]);
+            out.writeDouble(_weight[a]);
+            out.writeInt(_child1[a]);
+            out.writeInt(_child2[a]);
+        }
+        out.flush();
+    }
+
+    /** Returns the graph I was built for. */
+    public Graph<VLabel, ELabel> graph() {
+        return _graph;
+    }
+
+    /** Returns the number of shortcut arcs I added to the graph. */
+    public int shortcutCount() {
+        return _arcCount - _originalArcs;
+    }
+
+    /** Returns a path of minimum weight from V0 to V1 in my graph, as a
+     *  list of its edges, or null if V1 is unreachable from V0. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1) {
+        Query query = _queries.get();
+        UpwardSearch fwd = query.fwd, bwd = query.bwd;
+        fwd.start(V0.id());
+        bwd.start(V1.id());
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while (!fwd.isDone(best) || !bwd.isDone(best)) {
+            UpwardSearch cur;
+            if (bwd.isDone(best)) {
+                cur = fwd;
+            } else if (fwd.isDone(best)) {
+                cur = bwd;
+            } else {
+                cur = fwd.openSize() <= bwd.openSize() ? fwd : bwd;
+            }
+            UpwardSearch other = cur == fwd ? bwd : fwd;
+            int v = cur.settle();
+            double dist = cur.dist(v) + other.dist(v);
+            if (dist < best) {
+                best = dist;
+                meet = v;
+            }
+        }
+
+        if (meet == -1) {
+            return null;
+        }
+        LinkedList<Integer> arcs = new LinkedList<Integer>();
+        for (int v = meet, a = fwd.parent(v); a != -1; a = fwd.parent(v)) {
+            arcs.addFirst(a);
+            v = _tail[a];
+        }
+        for (int v = meet, a = bwd.parent(v); a != -1; a = bwd.parent(v)) {
+            arcs.addLast(a);
+            v = _head[a];
+        }
+
+        LinkedList<Graph<VLabel, ELabel>.Edge> path =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (int a : arcs) {
+            unpack(a, path);
+        }
+        return path;
+    }
+
+    /** Returns a matrix whose element [i][j] is the weight of a minimal path
+     *  from SOURCES.get(i) to TARGETS.get(j) in my graph, or
+     *  Double.POSITIVE_INFINITY if there is no such path.  Runs one backward
+     *  upward search per target, leaving its distances in per-vertex
+     *  buckets, then one forward upward search per source that scans the
+     *  buckets of the vertices it settles.  Both phases are spread across
+     *  the common ForkJoinPool. */
+    public double[][]
+    distanceMatrix(List<Graph<VLabel, ELabel>.Vertex> sources,
+                   List<Graph<VLabel, ELabel>.Vertex> targets) {
+        final List<Graph<VLabel, ELabel>.Vertex> sourceList =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(sources);
+        final List<Graph<VLabel, ELabel>.Vertex> targetList =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(targets);
+        final int[][] spaces = new int[targetList.size()][];
+        final double[][] spaceDists = new double[targetList.size()][];
+        new ParallelFor() {
+            @Override
+            void apply(int j) {
+                UpwardSearch bwd = _queries.get().bwd;
+                IntList space = new IntList();
+                bwd.start(targetList.get(j).id());
+                while (!bwd.isDone(Double.POSITIVE_INFINITY)) {
+                    space.add(bwd.settle());
+                }
+                spaces[j] = space.toArray();
+                spaceDists[j] = new double[spaces[j].length];
+                for (int k = 0; k < spaces[j].length; k += 1) {
+                    spaceDists[j][k] = bwd.dist(spaces[j][k]);
+                }
+            }
+        }.run(targetList.size());
+
+        final int[] offsets = new int[_bound + 1];
+        for (int[] space : spaces) {
+            for (int v : space) {
+                offsets[v + 1] += 1;
+            }
+        }
+        for (int v = 0; v < _bound; v += 1) {
+            offsets[v + 1] += offsets[v];
+        }
+        final int[] bucketTargets = new int[offsets[_bound]];
+        final double[] bucketDists = new double[offsets[_bound]];
+        int[] fill = Arrays.copyOf(offsets, _bound);
+        for (int j = 0; j < spaces.length; j += 1) {
+            for (int k = 0; k < spaces[j].length; k += 1) {
+                int slot = fill[spaces[j][k]]++;
+                bucketTargets[slot] = j;
+                bucketDists[slot] = spaceDists[j][k];
+            }
+        }
+
+        final double[][] result = new double[sourceList.size()][];
+        new ParallelFor() {
+            @Override
+            void apply(int i) {
+                double[] row = new double[targetList.size()];
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+                UpwardSearch fwd = _queries.get().fwd;
+                fwd.start(sourceList.get(i).id());
+                while (!fwd.isDone(Double.POSITIVE_INFINITY)) {
+                    int v = fwd.settle();
+                    double dist = fwd.dist(v);
+                    for (int k = offsets[v]; k < offsets[v + 1]; k += 1) {
+                        int j = bucketTargets[k];
+                        row[j] = Math.min(row[j], dist + bucketDists[k]);
+                    }
+                }
+                result[i] = row;
+            }
+        }.run(sourceList.size());
+        return result;
+    }
+
+    /** Appends the original edges making up arc A to PATH, in order. */
+    private void unpack(int a, List<Graph<VLabel, ELabel>.Edge> path) {
+        int[] stack = new int[8];
+        int top = 0;
+        stack[top++] = a;
+        while (top > 0) {
+            int c = stack[--top];
+            if (c < _originalArcs) {
+                path.add(_edges[c]);
+            } else {
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[top++] = _child2[c];
+                stack[top++] = _child1[c];
+            }
+        }
+    }
+
+    /* Preprocessing */
+
+    /** Contracts all my vertices, recording their ranks and adding
+     *  shortcut arcs. */
+    private void contract() {
+        _out = new IntList[_bound];
+        _in = new IntList[_bound];
+        for (int v = 0; v < _bound; v += 1) {
+            if (_vertices[v] != null) {
+                _out[v] = new IntList();
+                _in[v] = new IntList();
+            }
+        }
+        for (int a = 0; a < _originalArcs; a += 1) {
+            if (_tail[a] != _head[a]) {
+                _out[_tail[a]].add(a);
+                _in[_head[a]].add(a);
+            }
+        }
+        _contracted = new boolean[_bound];
+        _deletedNeighbors = new int[_bound];
+        _witnessStamp = new int[_bound];
+        _witnessDist = new double[_bound];
+        _witnessHeap = new IndexedHeap(_bound);
+
+        IndexedHeap order = new IndexedHeap(_bound);
+        for (int v = 0; v < _bound; v += 1) {
+            if (_vertices[v] != null) {
+                order.put(v, priority(v));
+            }
+        }
+
+        int rank = 0;
+        while (!order.isEmpty()) {
+            int v = order.poll();
+            double p = priority(v);
+            if (!order.isEmpty() && p > order.peekKey()) {
+                order.put(v, p);
+                continue;
+            }
+            contractVertex(v, true);
+            _contracted[v] = true;
+            _rank[v] = rank;
+            rank += 1;
+            IntList neighbors = neighbors(v);
+            for (int i = 0; i < neighbors.size(); i += 1) {
+                int x = neighbors.get(i);
+                _deletedNeighbors[x] += 1;
+                order.put(x, priority(x));
+            }
+        }
+
+        _out = _in = null;
+        _contracted = null;
+        _deletedNeighbors = _witnessStamp = null;
+        _witnessDist = null;
+        _witnessHeap = null;
+    }
+
+    /** Returns the contraction priority of uncontracted vertex V: the
+     *  number of shortcuts contracting it would add, less the number of
+     *  arcs it would remove, plus the number of its neighbors already
+     *  contracted.  Lower priorities are contracted first. */
+    private double priority(int v) {
+        int removed = 0;
+        for (int i = 0; i < _out[v].size(); i += 1) {
+            removed += _contracted[_head[_out[v].get(i)]] ? 0 : 1;
+        }
+        for (int i = 0; i < _in[v].size(); i += 1) {
+            removed += _contracted[_tail[_in[v].get(i)]] ? 0 : 1;
+        }
+        return contractVertex(v, false) - removed + _deletedNeighbors[v];
+    }
+
+    /** Returns the number of shortcuts needed to contract V, adding them
+     *  iff ADD. */
+    private int contractVertex(int v, boolean add) {
+        int count = 0;
+        IntList in = _in[v], out = _out[v];
+        for (int i = 0; i < in.size(); i += 1) {
+            int a = in.get(i), u = _tail[a];
+            if (_contracted[u]) {
+                continue;
+            }
+            double limit = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < out.size(); j += 1) {
+                int b = out.get(j), w = _head[b];
+                if (!_contracted[w] && w != u) {
+                    limit = Math.max(limit, _weight[a] + _weight[b]);
+                }
+            }
+            if (limit == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            witnessSearch(u, v, limit);
+            for (int j = 0; j < out.size(); j += 1) {
+                int b = out.get(j), w = _head[b];
+                double weight = _weight[a] + _weight[b];
+                if (_contracted[w] || w == u || witnessDist(w) <= weight) {
+                    continue;
+                }
+                count += 1;
+                if (add) {
+                    int c = addArc(u, w, weight, a, b);
+                    _out[u].add(c);
+                    _in[w].add(c);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Runs a Dijkstra search from U over uncontracted vertices other than
+     *  AVOID, settling no vertex farther than LIMIT and at most
+     *  WITNESS_SETTLE_LIMIT vertices.  Afterwards witnessDist gives an upper
+     *  bound on the distance from U to any vertex that avoids AVOID. */
+    private void witnessSearch(int u, int avoid, double limit) {
+        _witnessEpoch += 1;
+        _witnessHeap.clear();
+        _witnessStamp[u] = _witnessEpoch;
+        _witnessDist[u] = 0;
+        _witnessHeap.put(u, 0);
+        for (int settled = 0;
+             !_witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT
+                 && _witnessHeap.peekKey() <= limit;
+             settled += 1) {
+            int x = _witnessHeap.poll();
+            IntList out = _out[x];
+            for (int i = 0; i < out.size(); i += 1) {
+                int a = out.get(i), y = _head[a];
+                double dist = _witnessDist[x] + _weight[a];
+                if (y != avoid && !_contracted[y] && dist < witnessDist(y)) {
+                    _witnessStamp[y] = _witnessEpoch;
+                    _witnessDist[y] = dist;
+                    _witnessHeap.put(y, dist);
+                }
+            }
+        }
+    }
+
+    /** Returns the distance to V found by the last witness search. */
+    private double witnessDist(int v) {
+        return _witnessStamp[v] == _witnessEpoch
+            ? _witnessDist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the distinct uncontracted vertices adjacent to V. */
+    private IntList neighbors(int v) {
+        IntList result = new IntList();
+        _witnessEpoch += 1;
+        for (int i = 0; i < _out[v].size(); i += 1) {
+            addNeighbor(_head[_out[v].get(i)], result);
+        }
+        for (int i = 0; i < _in[v].size(); i += 1) {
+            addNeighbor(_tail[_in[v].get(i)], result);
+        }
+        return result;
+    }
+
+    /** Adds X to RESULT if it is uncontracted and not already marked in
+     *  the current witness epoch, and marks it. */
+    private void addNeighbor(int x, IntList result) {
+        if (!_contracted[x] && _witnessStamp[x] != _witnessEpoch) {
+            _witnessStamp[x] = _witnessEpoch;
+            _witnessDist[x] = Double.POSITIVE_INFINITY;
+            result.add(x);
+        }
+    }
+
+    /** Adds an arc from TAIL to HEAD with weight WEIGHT that stands for
+     *  the arcs CHILD1 followed by CHILD2 (both -1 for an original arc),
+     *  and returns its index. */
+    private int addArc(int tail, int head, double weight,
+                       int child1, int child2) {
+        if (_arcCount == _tail.length) {
+            int n = Math.max(2 * _arcCount, 16);
+            _tail = Arrays.copyOf(_tail, n);
+            _head = Arrays.copyOf(_head, n);
+            _weight = Arrays.copyOf(_weight, n);
+            _child1 = Arrays.copyOf(_child1, n);
+            _child2 = Arrays.copyOf(_child2, n);
+        }
+        int a = _arcCount;
+        _tail[a] = tail;
+        _head[a] = head;
+        _weight[a] = weight;
+        _child1[a] = child1;
+        _child2[a] = child2;
+        _arcCount += 1;
+        return a;
+    }
+
+    /** Fills _upOffsets/_upArcs with, for each vertex, the arcs leaving it
+     *  for a higher-ranked vertex, and _downOffsets/_downArcs with the arcs
+     *  entering it from a higher-ranked vertex. */
+    private void buildSearchGraphs() {
+        _upOffsets = new int[_bound + 1];
+        _downOffsets = new int[_bound + 1];
+        for (int a = 0; a < _arcCount; a += 1) {
+            if (_tail[a] == _head[a]) {
+                continue;
+            } else if (_rank[_head[a]] > _rank[_tail[a]]) {
+                _upOffsets[_tail[a] + 1] += 1;
+            } else {
+                _downOffsets[_head[a] + 1] += 1;
+            }
+        }
+        for (int v = 0; v < _bound; v += 1) {
+            _upOffsets[v + 1] += _upOffsets[v];
+            _downOffsets[v + 1] += _downOffsets[v];
+        }
+        _upArcs = new int[_upOffsets[_bound]];
+        _downArcs = new int[_downOffsets[_bound]];
+        int[] upFill = Arrays.copyOf(_upOffsets, _bound);
+        int[] downFill = Arrays.copyOf(_downOffsets, _bound);
+        for (int a = 0; a < _arcCount; a += 1) {
+            if (_tail[a] == _head[a]) {
+                continue;
+            } else if (_rank[_head[a]] > _rank[_tail[a]]) {
+                _upArcs[upFill[_tail[a]]++] = a;
+            } else {
+                _downArcs[downFill[_head[a]]++] = a;
+            }
+        }
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Edge[] newEdgeArray(int n) {
+        return (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+    }
+
+    /** One direction of an upward query: a Dijkstra search over the arcs
+     *  of _upArcs (forward) or _downArcs (backward). */
+    private class UpwardSearch {
+
+        /** A search state for forward searches iff FORWARD. */
+        UpwardSearch(boolean forward) {
+            _forward = forward;
+            _stamp = new int[_bound];
+            _dist = new double[_bound];
+            _parent = new int[_bound];
+            _heap = new IndexedHeap(_bound);
+        }
+
+        /** Begins a new search from vertex id SOURCE. */
+        void start(int source) {
+            _heap.clear();
+            if (_epoch == Integer.MAX_VALUE) {
+                Arrays.fill(_stamp, 0);
+                _epoch = 0;
+            }
+            _epoch += 1;
+            reach(source, 0, -1);
+        }
+
+        /** Returns true iff no vertex remains to be settled at a distance
+         *  less than BEST. */
+        boolean isDone(double best) {
+            return _heap.isEmpty() || _heap.peekKey() >= best;
+        }
+
+        /** Returns the number of vertices awaiting settlement. */
+        int openSize() {
+            return _heap.size();
+        }
+
+        /** Settles the nearest unsettled vertex, relaxes its upward arcs,
+         *  and returns its id. */
+        int settle() {
+            int v = _heap.poll();
+            int[] offsets = _forward ? _upOffsets : _downOffsets;
+            int[] arcs = _forward ? _upArcs : _downArcs;
+            for (int i = offsets[v]; i < offsets[v + 1]; i += 1) {
+                int a = arcs[i];
+                int u = _forward ? _head[a] : _tail[a];
+                double dist = _dist[v] + _weight[a];
+                if (dist < dist(u)) {
+                    reach(u, dist, a);
+                }
+            }
+            return v;
+        }
+
+        /** Returns the distance found to vertex id V, or infinity if V is
+         *  unreached. */
+        double dist(int v) {
+            return _stamp[v] == _epoch ? _dist[v] : Double.POSITIVE_INFINITY;
+        }
+
+        /** Returns the arc by which V was reached, or -1 for the source. */
+        int parent(int v) {
+            return _parent[v];
+        }
+
+        /** Records that V is reached at distance DIST by arc PARENT. */
+        private void reach(int v, double dist, int parent) {
+            _stamp[v] = _epoch;
+            _dist[v] = dist;
+            _parent[v] = parent;
+            _heap.put(v, dist);
+        }
+
+        /** True iff I search forward from the source. */
+        private final boolean _forward;
+        /** Current query number; entries with other stamps are stale. */
+        private int _epoch;
+        /** Epoch at which each vertex was last reached. */
+        private final int[] _stamp;
+        /** Distances found, by vertex id. */
+        private final double[] _dist;
+        /** Arcs by which vertices were reached, by vertex id. */
+        private final int[] _parent;
+        /** Reached but unsettled vertices. */
+        private final IndexedHeap _heap;
+    }
+
+    /** The forward and backward searches of one thread's queries. */
+    private class Query {
+        /** Search upward from the source. */
+        private final UpwardSearch fwd = new UpwardSearch(true);
+        /** Search upward from the target along reversed arcs. */
+        private final UpwardSearch bwd = new UpwardSearch(false);
+    }
+
+    /** A growable list of ints. */
+    private static class IntList {
+
+        /** Adds X to the end of me. */
+        void add(int x) {
+            if (_size == _items.length) {
+                _items = Arrays.copyOf(_items, 2 * _size);
+            }
+            _items[_size] = x;
+            _size += 1;
+        }
+
+        /** Returns my Kth item. */
+        int get(int k) {
+            return _items[k];
+        }
+
+        /** Returns my size. */
+        int size() {
+            return _size;
+        }
+
+        /** Returns my items as a new array. */
+        int[] toArray() {
+            return Arrays.copyOf(_items, _size);
+        }
+
+        /** My items are _items[0 .. _size-1]. */
+        private int[] _items = new int[4];
+        /** Number of items in me. */
+        private int _size;
+    }
+
+    /** Leading word of a saved hierarchy. */
+    private static final int MAGIC = 0x43484732;
+    /** Maximum number of vertices settled by one witness search. */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /** The graph I was built for. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** Upper bound on the vertex ids of _graph. */
+    private final int _bound;
+    /** Vertices of _graph, indexed by id (null for unused ids). */
+    private final Graph<VLabel, ELabel>.Vertex[] _vertices;
+    /** Rank of each vertex in contraction order, by id (-1 if unused). */
+    private final int[] _rank;
+    /** Edges of _graph.  Arc a < _originalArcs stands for _edges[a]. */
+    private final Graph<VLabel, ELabel>.Edge[] _edges;
+    /** Number of arcs standing for edges of _graph. */
+    private final int _originalArcs;
+    /** Checksum of _graph and its edge weights when I was built. */
+    private final long _checksum;
+
+    /** Number of arcs, original and shortcut. */
+    private int _arcCount;
+    /** Tail vertex id of each arc. */
+    private int[] _tail;
+    /** Head vertex id of each arc. */
+    private int[] _head;
+    /** Weight of each arc. */
+    private double[] _weight;
+    /** First of the two arcs a shortcut stands for (-1 if original). */
+    private int[] _child1;
+    /** Second of the two arcs a shortcut stands for (-1 if original). */
+    private int[] _child2;
+
+    /** _upArcs[_upOffsets[v] .. _upOffsets[v+1]-1] are the arcs leaving
+     *  vertex v for higher-ranked vertices. */
+    private int[] _upOffsets, _upArcs;
+    /** _downArcs[_downOffsets[v] .. _downOffsets[v+1]-1] are the arcs
+     *  entering vertex v from higher-ranked vertices. */
+    private int[] _downOffsets, _downArcs;
+    /** Forward and backward query state of each thread using me. */
+    private final ThreadLocal<Query> _queries;
+
+    /* Preprocessing state; null outside of contract. */
+
+    /** Arcs leaving and entering each vertex during contraction. */
+    private IntList[] _out, _in;
+    /** True for vertices already contracted. */
+    private boolean[] _contracted;
+    /** Number of contracted neighbors of each vertex. */
+    private int[] _deletedNeighbors;
+    /** Current witness search number. */
+    private int _witnessEpoch;
+    /** Epoch at which each vertex was reached by a witness search. */
+    private int[] _witnessStamp;
+    /** Distances found by the current witness search. */
+    private double[] _witnessDist;
+    /** Open set of witness searches. */
+    private IndexedHeap _witnessHeap;
+
+}
@@ -0,0 +1,301 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/** A read-only snapshot of a graph, in which the edges incident on each
+ *  vertex are kept in compressed sparse row form: the outgoing edges of the
+ *  vertex with id v are numbered _outEdges[_outOffsets[v]] through
+ *  _outEdges[_outOffsets[v + 1] - 1], and their far ends are the vertex ids
+ *  in the same positions of _outTargets (likewise for incoming edges,
+ *  without the far ends).  The vertices have no adjacency lists of their
+ *  own: a snapshot still keeps one Vertex and one Edge object for each
+ *  vertex and edge of the original, so that they keep their identities,
+ *  but replaces the two lists per vertex (and their backing arrays) by
+ *  four int arrays, and is traversed with far less pointer chasing.
+ *
+ *  A snapshot supports the whole Graph API except the operations that add
+ *  or remove vertices or edges, which throw UnsupportedOperationException,
+ *  so Graphs, Traversal, and the other classes in this package work on it
+ *  unchanged.  Its vertices and edges are new objects, with the same labels
+ *  as those of the original graph; image maps the vertices of the original
+ *  to their counterparts.  Each vertex keeps the id of its original, edges
+ *  are numbered from 0 in the order of the original's edges(), and
+ *  vertices, edges, and the edges incident on each vertex are delivered
+ *  in the same order as by the original at the time of the snapshot.
+ *  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class CsrGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** A snapshot of the current contents of G. */
+    public CsrGraph(Graph<VLabel, ELabel> G) {
+        _directed = G.isDirected();
+        int bound = G.vertexIdBound();
+        _vertices = newVertexArray(bound);
+        _vertexOrder = newVertexArray(G.vertexSize());
+        int n = 0;
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _vertices[v.id()] = _vertexOrder[n] = new Vertex(v.getLabel(),
+                                                             v.id());
+            n += 1;
+        }
+
+        int[] ids = new int[G.edgeIdBound()];
+        _edges = newEdgeArray(G.edgeSize());
+        n = 0;
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            ids[e.id()] = n;
+            _edges[n] = new Edge(_vertices[e.getV0().id()],
+                                 _vertices[e.getV1().id()], e.getLabel(), n);
+            n += 1;
+        }
+        _edgeOrder = _edges;
+
+        _outOffsets = new int[bound + 1];
+        _inOffsets = new int[bound + 1];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _outOffsets[v.id() + 1] = G.outDegree(v);
+            _inOffsets[v.id() + 1] = G.inDegree(v);
+        }
+        for (int v = 0; v < bound; v += 1) {
+            _outOffsets[v + 1] += _outOffsets[v];
+            _inOffsets[v + 1] += _inOffsets[v];
+        }
+        _outEdges = new int[_outOffsets[bound]];
+        _outTargets = new int[_outEdges.length];
+        _inEdges = new int[_inOffsets[bound]];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            int k = _outOffsets[v.id()];
+            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
+                _outEdges[k] = ids[e.id()];
+                _outTargets[k] = e.getV(v).id();
+                k += 1;
+            }
+            k = _inOffsets[v.id()];
+            for (Graph<VLabel, ELabel>.Edge e : G.inEdges(v)) {
+                _inEdges[k] = ids[e.id()];
+                k += 1;
+            }
+        }
+    }
+
+    /** Returns my vertex corresponding to V, a vertex of the graph I was
+     *  made from, or null if V was not in that graph when I was made. */
+    public Vertex image(Graph<VLabel, ELabel>.Vertex v) {
+        int id = v.id();
+        if (id >= _vertices.length || _vertices[id] == null
+            || _vertices[id].getLabel() != v.getLabel()) {
+            return null;
+        }
+        return _vertices[id];
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexOrder.length;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edges.length;
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        return _outOffsets[v.id() + 1] - _outOffsets[v.id()];
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        return _inOffsets[v.id() + 1] - _inOffsets[v.id()];
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        for (int k = _outOffsets[u.id()]; k < _outOffsets[u.id() + 1];
+             k += 1) {
+            if (_outTargets[k] == v.id()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        for (int k = _outOffsets[u.id()]; k < _outOffsets[u.id() + 1];
+             k += 1) {
+            if (_outTargets[k] == v.id()
+                && _edges[_outEdges[k]].getLabel().equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public void remove(Edge e) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    void removeAll(Collection<? extends Edge> edges) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    int vertexIdBound() {
+        return _vertices.length;
+    }
+
+    @Override
+    int edgeIdBound() {
+        return _edges.length;
+    }
+
+    @Override
+    Vertex vertex(int id) {
+        return id >= 0 && id < _vertices.length ? _vertices[id] : null;
+    }
+
+    @Override
+    Edge edge(int id) {
+        return id >= 0 && id < _edges.length ? _edges[id] : null;
+    }
+
+    @Override
+    Edge outEdge(Vertex v, int k) {
+        return _edges[_outEdges[_outOffsets[v.id()] + k]];
+    }
+
+    @Override
+    Edge inEdge(Vertex v, int k) {
+        return _edges[_inEdges[_inOffsets[v.id()] + k]];
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        return Iteration.iteration(Arrays.asList(_vertexOrder));
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        return Iteration.iteration(Arrays.asList(_edgeOrder));
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        return new EdgeRange(_outEdges, _outOffsets[v.id()],
+                             _outOffsets[v.id() + 1]);
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        return new EdgeRange(_inEdges, _inOffsets[v.id()],
+                             _inOffsets[v.id() + 1]);
+    }
+
+    /** Orders edges() by COMPARATOR, and then by edge number, or by edge
+     *  number alone if COMPARATOR is null.  The new order is built in full
+     *  before it replaces the old one, so readers on other threads see
+     *  one or the other. */
+    @Override
+    public void orderEdges(Comparator<ELabel> comparator) {
+        Edge[] order = Arrays.copyOf(_edges, _edges.length);
+        Comparator<Edge> edgeComparator = edgeComparator(comparator);
+        if (edgeComparator != null) {
+            Arrays.sort(order, edgeComparator);
+        }
+        _edgeOrder = order;
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Vertex[] newVertexArray(int n) {
+        return (Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Edge[] newEdgeArray(int n) {
+        return (Edge[]) new Graph.Edge[n];
+    }
+
+    /** An iteration over the edges whose numbers are in a range of one of
+     *  my adjacency arrays. */
+    private class EdgeRange extends Iteration<Edge> {
+
+        /** An iteration over the edges numbered EDGES[LO .. HI-1]. */
+        EdgeRange(int[] edges, int lo, int hi) {
+            _ids = edges;
+            _next = lo;
+            _hi = hi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _hi;
+        }
+
+        @Override
+        public Edge next() {
+            Edge e = _edges[_ids[_next]];
+            _next += 1;
+            return e;
+        }
+
+        /** The adjacency array I iterate over. */
+        private final int[] _ids;
+        /** Position of the next edge. */
+        private int _next;
+        /** End of my range. */
+        private final int _hi;
+    }
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** My vertices, indexed by id (null for unused ids). */
+    private final Vertex[] _vertices;
+    /** My vertices, in the order delivered by vertices(). */
+    private final Vertex[] _vertexOrder;
+    /** My edges, indexed by edge number. */
+    private final Edge[] _edges;
+    /** My edges, in the order delivered by edges().  Replaced as a whole
+     *  by orderEdges. */
+    private volatile Edge[] _edgeOrder;
+    /** Start of the outgoing edges of each vertex id in _outEdges and
+     *  _outTargets, with a final entry marking the end. */
+    private final int[] _outOffsets;
+    /** Numbers of the outgoing edges of each vertex, grouped by vertex. */
+    private final int[] _outEdges;
+    /** Ids of the far ends of the edges in _outEdges. */
+    private final int[] _outTargets;
+    /** Start of the incoming edges of each vertex id in _inEdges, with a
+     *  final entry marking the end. */
+    private final int[] _inOffsets;
+    /** Numbers of the incoming edges of each vertex, grouped by vertex. */
+    private final int[] _inEdges;
+
+}
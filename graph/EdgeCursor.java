@@ -0,0 +1,103 @@
+package graph;
+
+import java.util.NoSuchElementException;
+
+/** A reusable cursor over the edges leaving or entering one vertex of a
+ *  graph at a time.  Unlike the iterations returned by Graph.outEdges and
+ *  Graph.inEdges, a cursor allocates nothing as it moves, and may be
+ *  pointed at vertex after vertex, so a search that keeps one cursor does
+ *  no allocation per vertex or edge.  A typical loop is
+ *      cursor.outEdges(v);
+ *      while (cursor.hasNext()) {
+ *          cursor.next();
+ *          ... cursor.edge() ... cursor.target() ...
+ *      }
+ *  As for iterations, changing the graph while a cursor is in use has
+ *  undefined results, except that for the concurrent graphs a cursor
+ *  simply stops early if the vertex loses edges.  VLABEL and ELABEL are
+ *  the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+class EdgeCursor<VLabel, ELabel> {
+
+    /** A cursor over the edges of G, which is positioned at no vertex. */
+EdgeCursor(Graph<VLabel, ELabel> G) {
+        _graph = G;
+    }
+
+    /** Returns the graph whose edges I traverse. */
+Graph<VLabel, ELabel> graph() {
+        return _graph;
+    }
+
+    /** Positions me before the first of the edges leaving V (all its
+     *  edges, in an undirected graph), in the order of outEdges(V). */
+void outEdges(Graph<VLabel, ELabel>.Vertex v) {
+        start(v, false, _graph.outDegree(v));
+    }
+
+    /** Positions me before the first of the edges entering V, in the order
+     *  of inEdges(V). */
+void inEdges(Graph<VLabel, ELabel>.Vertex v) {
+        start(v, true, _graph.inDegree(v));
+    }
+
+    /** Returns true iff there is an edge after my current one. */
+boolean hasNext() {
+        if (_pending == null && _next < _end) {
+            _pending = _incoming ? _graph.inEdge(_vertex, _next)
+                : _graph.outEdge(_vertex, _next);
+            _next = _pending == null ? _end : _next + 1;
+        }
+        return _pending != null;
+    }
+
+    /** Advances to the next edge, and returns its id. */
+int next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        _edge = _pending;
+        _pending = null;
+        return _edge.id();
+    }
+
+    /** Returns my current edge: the one most recently returned by
+     *  next(). */
+Graph<VLabel, ELabel>.Edge edge() {
+        return _edge;
+    }
+
+    /** Returns the end of my current edge other than the vertex I am
+     *  positioned at. */
+Graph<VLabel, ELabel>.Vertex target() {
+        return _edge.getV(_vertex);
+    }
+
+    /** Positions me before the first of the END edges of V that enter it,
+     *  if INCOMING, or leave it. */
+    private void start(Graph<VLabel, ELabel>.Vertex v, boolean incoming,
+                       int end) {
+        _vertex = v;
+        _incoming = incoming;
+        _next = 0;
+        _end = end;
+        _edge = _pending = null;
+    }
+
+    /** The graph whose edges I traverse. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** The vertex whose edges I traverse. */
+    private Graph<VLabel, ELabel>.Vertex _vertex;
+    /** True iff I traverse incoming edges. */
+    private boolean _incoming;
+    /** Position of the next edge to fetch. */
+    private int _next;
+    /** Number of edges of _vertex when I was positioned. */
+    private int _end;
+    /** My current edge, or null if none. */
+    private Graph<VLabel, ELabel>.Edge _edge;
+    /** The next edge, if already fetched by hasNext, or null. */
+    private Graph<VLabel, ELabel>.Edge _pending;
+
+}
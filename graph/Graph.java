@@ -4,12 +4,13 @@ import java.util.Comparator;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 
-import java.util.Set;
-import java.util.HashSet;
-import java.util.TreeSet;
+import java.util.Collection;
 
 import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /* Do not add or remove public or protected members, or modify the signatures of
  * any public methods.  You may make changes that don't affect the API as seen
@@ -42,11 +43,12 @@ public abstract class Graph<VLabel, ELabel> {
     /** Represents one of my vertices. */
     public class Vertex {
 
-        /** A new vertex with LABEL as the value of getLabel(). */
-        Vertex(VLabel label) {
+        /** A new vertex with LABEL as the value of getLabel() and dense
+         *  index ID. */
+        Vertex(VLabel label, int id) {
             _label = label;
-            _outgoing = new ArrayList<Edge>();
-            _incoming = new ArrayList<Edge>();
+            _id = id;
+            _outgoing = _incoming = Collections.emptyList();
         }
 
         /** Returns the label on this vertex. */
@@ -56,33 +58,139 @@ public abstract class Graph<VLabel, ELabel> {
 
         /** Adds an outgoing edge EDGE from this vertex. */
         void addOutgoingEdge(Edge edge) {
+            if (_outgoing == Collections.<Edge>emptyList()) {
+                _outgoing = new ArrayList<Edge>();
+            }
+            edge._outSlot = _outgoing.size();
             _outgoing.add(edge);
+            indexAdded(edge);
         }
 
         /** Adds an incoming edge EDGE from this vertex. */
         void addIncomingEdge(Edge edge) {
+            if (_incoming == Collections.<Edge>emptyList()) {
+                _incoming = new ArrayList<Edge>();
+            }
+            edge._inSlot = _incoming.size();
             _incoming.add(edge);
         }
 
-        /** Adds an edge EDGE to this vertex. (In an undirected graph.) */
+        /** Adds EDGE, which enters this vertex, to this vertex's edges in
+         *  an undirected graph, where they are all kept as outgoing. */
         void addEdge(Edge edge) {
-            addOutgoingEdge(edge);
+            if (_outgoing == Collections.<Edge>emptyList()) {
+                _outgoing = new ArrayList<Edge>();
+            }
+            edge._inSlot = _outgoing.size();
+            _outgoing.add(edge);
+            indexAdded(edge);
+        }
+
+        /** Makes room for OUTGOING more outgoing and INCOMING more incoming
+         *  edges, so that adding them does not grow my lists. */
+        void reserve(int outgoing, int incoming) {
+            _outgoing = reserve(_outgoing, outgoing);
+            _incoming = reserve(_incoming, incoming);
+        }
+
+        /** Returns EDGES, one of my adjacency lists, or a replacement for
+         *  it, with room for N more edges. */
+        private List<Edge> reserve(List<Edge> edges, int n) {
+            if (n == 0) {
+                return edges;
+            } else if (edges == Collections.<Edge>emptyList()) {
+                return new ArrayList<Edge>(n);
+            } else {
+                ((ArrayList<Edge>) edges).ensureCapacity(edges.size() + n);
+                return edges;
+            }
         }
 
         /** Removes outgoing edge EDGE from this vertex. */
         void removeOutgoing(Edge edge) {
-            _outgoing.remove(edge);
+            removeAt(_outgoing, edge._outSlot);
         }
 
         /** Removes incoming edge EDGE from this vertex. */
         void removeIncoming(Edge edge) {
-            _incoming.remove(edge);
+            removeAt(_incoming, edge._inSlot);
         }
 
-        /** Removes edge EDGE from this vertex. (Convenience method for
-         *  undirected graphs.) */
+        /** Removes EDGE, which enters this vertex, from this vertex's edges
+         *  in an undirected graph. */
         void removeEdge(Edge edge) {
-            removeOutgoing(edge);
+            removeAt(_outgoing, edge._inSlot);
+        }
+
+        /** Removes the edge at position SLOT of EDGES, one of my adjacency
+         *  lists, in constant time by moving the last edge into its
+         *  place. */
+        private void removeAt(List<Edge> edges, int slot) {
+            if (edges == _outgoing && _neighbors != null) {
+                Edge removed = edges.get(slot);
+                _neighbors.remove(removed.getV(this).id(), removed);
+            }
+            int last = edges.size() - 1;
+            Edge moved = edges.remove(last);
+            if (slot != last) {
+                edges.set(slot, moved);
+                moved.moveSlot(this, edges == _outgoing, last, slot);
+            }
+            if (edges == _outgoing && edges.size() < INDEX_THRESHOLD / 2) {
+                _neighbors = null;
+            }
+        }
+
+        /** Removes from my adjacency lists, in one pass over each, all
+         *  edges that are no longer in my graph. */
+        void compact() {
+            compact(_outgoing);
+            compact(_incoming);
+            reindex();
+        }
+
+        /** Records the addition of EDGE, the last of my outgoing edges, in
+         *  my neighbor index, creating the index if I have become large
+         *  enough to need it. */
+        private void indexAdded(Edge edge) {
+            if (_neighbors != null) {
+                _neighbors.add(edge.getV(this).id(), edge);
+            } else if (_outgoing.size() >= INDEX_THRESHOLD) {
+                reindex();
+            }
+        }
+
+        /** Rebuilds my neighbor index from my outgoing edges, or discards
+         *  it if I have too few edges to need one. */
+        private void reindex() {
+            if (_outgoing.size() < INDEX_THRESHOLD) {
+                _neighbors = null;
+            } else {
+                _neighbors = new NeighborIndex(_outgoing.size());
+                for (Edge e : _outgoing) {
+                    _neighbors.add(e.getV(this).id(), e);
+                }
+            }
+        }
+
+        /** Removes from EDGES, one of my adjacency lists, all edges that are
+         *  no longer in my graph, keeping the others in order. */
+        private void compact(List<Edge> edges) {
+            boolean outgoing = edges == _outgoing;
+            int n, k;
+            n = edges.size();
+            k = 0;
+            for (int i = 0; i < n; i += 1) {
+                Edge e = edges.get(i);
+                if (containsEdge(e)) {
+                    if (k != i) {
+                        edges.set(k, e);
+                        e.moveSlot(this, outgoing, i, k);
+                    }
+                    k += 1;
+                }
+            }
+            edges.subList(k, n).clear();
         }
 
         /** Returns an iterator over the outgoing edges of this vertex. */
@@ -95,6 +203,21 @@ public abstract class Graph<VLabel, ELabel> {
             return _incoming.iterator();
         }
 
+        /** Returns my Kth outgoing edge, in the order of outgoingEdges(). */
+        Edge outgoing(int k) {
+            return _outgoing.get(k);
+        }
+
+        /** Returns my Kth incoming edge, in the order of incomingEdges(). */
+        Edge incoming(int k) {
+            return _incoming.get(k);
+        }
+
+        /** Returns the dense index of this vertex within its graph. */
+        int id() {
+            return _id;
+        }
+
         /** Returns the number of outgoing edges from this vertex. */
         int outDegree() {
             return _outgoing.size();
@@ -108,6 +231,9 @@ public abstract class Graph<VLabel, ELabel> {
         /** Returns true iff this Vertex contains an outgoing edge
          *  with V as its opposite vertex. */
         boolean containsEdgeTo(Vertex v) {
+            if (_neighbors != null) {
+                return _neighbors.contains(v.id(), true, null);
+            }
             for (Edge e : _outgoing) {
                 if (e.getV(this) == v) {
                     return true;
@@ -119,6 +245,9 @@ public abstract class Graph<VLabel, ELabel> {
         /** Returns true iff this Vertex contains an outgoing edge
          *  with label LABEL with V as its opposite vertex. */
         boolean containsEdgeToWithLabel(Vertex v, ELabel label) {
+            if (_neighbors != null) {
+                return _neighbors.contains(v.id(), false, label);
+            }
             for (Edge e : _outgoing) {
                 if (e.getV(this) == v && e.getLabel().equals(label)) {
                     return true;
@@ -134,22 +263,32 @@ public abstract class Graph<VLabel, ELabel> {
 
         /** The label on this vertex. */
         private final VLabel _label;
-        /** Outgoing edges of this vertex. */
-        private final List<Edge> _outgoing;
-        /** Incoming edges of this vertex. */
-        private final List<Edge> _incoming;
+        /** Dense index of this vertex. */
+        private final int _id;
+        /** Number of this vertex's edges being removed by removeAll. */
+        private int _pending;
+        /** Index of my outgoing edges by the ids of their far ends, or null
+         *  if I have fewer than INDEX_THRESHOLD of them. */
+        private NeighborIndex _neighbors;
+        /** Outgoing edges of this vertex (a shared empty list until the
+         *  first is added). */
+        private List<Edge> _outgoing;
+        /** Incoming edges of this vertex (a shared empty list until the
+         *  first is added). */
+        private List<Edge> _incoming;
     }
 
 
     /** Represents one of my edges. */
     public class Edge {
 
-        /** An edge (V0,V1) with label LABEL.  It is a directed edge (from
-         *  V0 to V1) in a directed graph. */
-        Edge(Vertex v0, Vertex v1, ELabel label) {
+        /** An edge (V0,V1) with label LABEL and dense index ID.  It is a
+         *  directed edge (from V0 to V1) in a directed graph. */
+        Edge(Vertex v0, Vertex v1, ELabel label, int id) {
             _label = label;
             _v0 = v0;
             _v1 = v1;
+            _id = id;
         }
 
         /** Returns the label on this edge. */
@@ -181,6 +320,22 @@ public abstract class Graph<VLabel, ELabel> {
             }
         }
 
+        /** Returns the dense index of this edge within its graph. */
+        int id() {
+            return _id;
+        }
+
+        /** Records that this edge has moved from position FROM to position
+         *  TO of the adjacency list of its end V that is my outgoing list
+         *  iff OUTGOING. */
+        void moveSlot(Vertex v, boolean outgoing, int from, int to) {
+            if (outgoing && v == _v0 && _outSlot == from) {
+                _outSlot = to;
+            } else {
+                _inSlot = to;
+            }
+        }
+
         @Override
         public String toString() {
             return String.format("(%s,%s):%s", _v0, _v1, _label);
@@ -191,6 +346,13 @@ public abstract class Graph<VLabel, ELabel> {
         private final Vertex _v0, _v1;
         /** The label on this edge. */
         private final ELabel _label;
+        /** Dense index of this edge. */
+        private final int _id;
+        /** Position of this edge in the outgoing edges of _v0. */
+        private int _outSlot;
+        /** Position of this edge in the incoming edges of _v1 (among the
+         *  edges of _v1 in an undirected graph). */
+        private int _inSlot;
 
     }
 
@@ -198,18 +360,16 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Constructs an empty graph. */
     Graph() {
-        _vertices = new TreeSet<Vertex>(new VertexComparator());
-        _edges = new TreeSet<Edge>(new EdgeComparator());
     }
 
     /** Returns the number of vertices in me. */
     public int vertexSize() {
-        return _vertices.size();
+        return _vertexCount;
     }
 
     /** Returns the number of edges in me. */
     public int edgeSize() {
-        return _edges.size();
+        return _edgeCount;
     }
 
     /** Returns true iff I am a directed graph. */
@@ -247,8 +407,11 @@ public abstract class Graph<VLabel, ELabel> {
     /** Returns a new vertex labeled LABEL, and adds it to me with no
      *  incident edges. */
     public Vertex add(VLabel label) {
-        Vertex v = new Vertex(label);
-        _vertices.add(v);
+        Vertex v = new Vertex(label, _vertexIds.allocate());
+        _vertexById.set(v.id(), v);
+        _vertexCount += 1;
+        _vertexOrder = null;
+        notifyVertexAdded(v);
         return v;
     }
 
@@ -275,30 +438,211 @@ public abstract class Graph<VLabel, ELabel> {
     /** Remove all edges from V1 to V2 from me, if present.  The result is
      *  undefined if V1 and V2 are not among my vertices.  */
     public void remove(Vertex v1, Vertex v2) {
-        Set<Edge> elist = new HashSet<Edge>();
+        List<Edge> elist = new ArrayList<Edge>();
         for (Edge e : outEdges(v1)) {
             if (e.getV(v1) == v2) {
                 elist.add(e);
             }
         }
-        for (Edge e : elist) {
-            remove(e);
+        removeAll(elist);
+    }
+
+    /** Removes all of EDGES that are in me.  Takes time proportional to the
+     *  number of EDGES, plus the degrees of those of their ends that lose
+     *  a large fraction of their edges (whose adjacency lists are
+     *  compacted in one pass rather than edited edge by edge). */
+    void removeAll(Collection<? extends Edge> edges) {
+        List<Edge> removed = new ArrayList<Edge>();
+        List<Vertex> touched = new ArrayList<Vertex>();
+        for (Edge e : edges) {
+            if (containsEdge(e)) {
+                releaseEdge(e);
+                removed.add(e);
+                touch(e.getV0(), touched);
+                touch(e.getV1(), touched);
+            }
+        }
+        for (Vertex v : touched) {
+            if (COMPACTION_RATIO * v._pending
+                >= v.outDegree() + v.inDegree()) {
+                v.compact();
+                v._pending = 0;
+            }
+        }
+        for (Edge e : removed) {
+            if (e.getV0()._pending > 0) {
+                e.getV0().removeOutgoing(e);
+            }
+            if (e.getV1()._pending > 0) {
+                if (isDirected()) {
+                    e.getV1().removeIncoming(e);
+                } else {
+                    e.getV1().removeEdge(e);
+                }
+            }
+        }
+        for (Vertex v : touched) {
+            v._pending = 0;
+        }
+        for (Edge e : removed) {
+            notifyEdgeRemoved(e);
+        }
+    }
+
+    /** Counts an edge of V as pending removal, adding V to TOUCHED if it
+     *  is the first. */
+    private void touch(Vertex v, List<Vertex> touched) {
+        if (v._pending == 0) {
+            touched.add(v);
+        }
+        v._pending += 1;
+    }
+
+    /** Returns the weight of E, one of my edges, according to EWEIGHTER.
+     *  All searches in this package get edge weights through this method,
+     *  so that graphs that store weights may supply them directly. */
+    double weight(Edge e, Weighting<? super ELabel> eweighter) {
+        return eweighter.weight(e.getLabel());
+    }
+
+    /** Makes room for VERTICES more vertices and EDGES more edges, so that
+     *  adding them does not grow my tables. */
+    void reserve(int vertices, int edges) {
+        _vertexById.ensureCapacity(_vertexById.size() + vertices);
+        _edgeById.ensureCapacity(_edgeById.size() + edges);
+    }
+
+    /** Causes LISTENER to be notified of all subsequent changes to me. */
+    void addListener(GraphListener<VLabel, ELabel> listener) {
+        _listeners.add(listener);
+    }
+
+    /** Stops notifying LISTENER of changes to me. */
+    void removeListener(GraphListener<VLabel, ELabel> listener) {
+        _listeners.remove(listener);
+    }
+
+    /** Returns a new edge (V0, V1) labeled LABEL, with an unused id, and
+     *  records it as one of my edges.  It is up to the caller to add the
+     *  edge to the adjacency lists of its ends. */
+    Edge newEdge(Vertex v0, Vertex v1, ELabel label) {
+        Edge e = new Edge(v0, v1, label, _edgeIds.allocate());
+        _edgeById.set(e.id(), e);
+        _edgeCount += 1;
+        _edgeOrder = null;
+        return e;
+    }
+
+    /** Removes V, which has no remaining edges, from my vertices and frees
+     *  its id for reuse. */
+    void releaseVertex(Vertex v) {
+        _vertexById.set(v.id(), null);
+        _vertexIds.release(v.id());
+        _vertexCount -= 1;
+        _vertexOrder = null;
+    }
+
+    /** Removes E, which has been removed from the adjacency lists of its
+     *  ends, from my edges and frees its id for reuse. */
+    void releaseEdge(Edge e) {
+        _edgeById.set(e.id(), null);
+        _edgeIds.release(e.id());
+        _edgeCount -= 1;
+        _edgeOrder = null;
+    }
+
+    /** Notifies my listeners that V has been added. */
+    void notifyVertexAdded(Vertex v) {
+        for (GraphListener<VLabel, ELabel> listener : _listeners) {
+            listener.vertexAdded(v);
+        }
+    }
+
+    /** Notifies my listeners that E has been added. */
+    void notifyEdgeAdded(Edge e) {
+        for (GraphListener<VLabel, ELabel> listener : _listeners) {
+            listener.edgeAdded(e);
+        }
+    }
+
+    /** Notifies my listeners that E has been removed. */
+    void notifyEdgeRemoved(Edge e) {
+        for (GraphListener<VLabel, ELabel> listener : _listeners) {
+            listener.edgeRemoved(e);
+        }
+    }
+
+    /** Notifies my listeners that V has been removed. */
+    void notifyVertexRemoved(Vertex v) {
+        for (GraphListener<VLabel, ELabel> listener : _listeners) {
+            listener.vertexRemoved(v);
         }
     }
 
-    /** Returns this graph's TreeSet of Edges. */
-    TreeSet<Edge> edgeSet() {
-        return _edges;
+    /** Returns an upper bound (exclusive) on the ids of my vertices. Arrays
+     *  of this length may be indexed by Vertex.id(). */
+    int vertexIdBound() {
+        return _vertexIds.bound();
+    }
+
+    /** Returns an upper bound (exclusive) on the ids of my edges. Arrays
+     *  of this length may be indexed by Edge.id(). */
+    int edgeIdBound() {
+        return _edgeIds.bound();
+    }
+
+    /** Returns the dense id of V, one of my vertices.  While V remains in
+     *  me, no other vertex of mine has the same id; once it is removed,
+     *  its id may be given to a new vertex. */
+    int id(Vertex v) {
+        return v.id();
+    }
+
+    /** Returns the dense id of E, one of my edges, with the same
+     *  guarantees as for vertices. */
+    int id(Edge e) {
+        return e.id();
+    }
+
+    /** Returns my vertex whose id is ID, or null if there is none. */
+    Vertex vertex(int id) {
+        return id >= 0 && id < _vertexById.size() ? _vertexById.get(id) : null;
+    }
+
+    /** Returns my edge whose id is ID, or null if there is none. */
+    Edge edge(int id) {
+        return id >= 0 && id < _edgeById.size() ? _edgeById.get(id) : null;
     }
 
-    /** Returns this graph's TreeSet of Edges. */
-    TreeSet<Vertex> vertexSet() {
-        return _vertices;
+    /** Returns the Kth edge of outEdges(V), where 0 <= K < outDegree(V).
+     *  Unlike outEdges, allocates nothing. */
+    Edge outEdge(Vertex v, int k) {
+        return v.outgoing(k);
+    }
+
+    /** Returns the Kth edge of inEdges(V), where 0 <= K < inDegree(V).
+     *  Allocates nothing. */
+    Edge inEdge(Vertex v, int k) {
+        return v.incoming(k);
+    }
+
+    /** Returns true iff V is one of my vertices. */
+    boolean containsVertex(Vertex v) {
+        return vertex(v.id()) == v;
+    }
+
+    /** Returns true iff E is one of my edges. */
+    boolean containsEdge(Edge e) {
+        return edge(e.id()) == e;
     }
 
     /** Returns an Iterator over all vertices in arbitrary order. */
     public Iteration<Vertex> vertices() {
-        return Iteration.iteration(_vertices);
+        if (_vertexOrder == null) {
+            _vertexOrder = sorted(_vertexById, _vertexCount,
+                                  new VertexComparator());
+        }
+        return Iteration.iteration(_vertexOrder);
     }
 
     /** Returns an iterator over all successors of V. */
@@ -321,7 +665,10 @@ public abstract class Graph<VLabel, ELabel> {
 
     /** Returns an iterator over all edges in me. */
     public Iteration<Edge> edges() {
-        return Iteration.iteration(_edges);
+        if (_edgeOrder == null) {
+            _edgeOrder = sorted(_edgeById, _edgeCount, _edgeComparator);
+        }
+        return Iteration.iteration(_edgeOrder);
     }
 
     /** Returns iterator over all outgoing edges from V. */
@@ -341,14 +688,43 @@ public abstract class Graph<VLabel, ELabel> {
     }
 
     /** Cause subsequent calls to edges() to visit or deliver
-     *  edges in sorted order, according to COMPARATOR. Subsequent
+     *  edges in sorted order, according to COMPARATOR, or in their default
+     *  order if COMPARATOR is null. Subsequent
      *  addition of edges may cause the edges to be reordered
      *  arbitrarily.  */
     public void orderEdges(Comparator<ELabel> comparator) {
-        TreeSet<Edge> orderedSet = new TreeSet<Edge>(
-                new EdgeComparator(comparator));
-        orderedSet.addAll(_edges);
-        _edges = orderedSet;
+        _edgeComparator = edgeComparator(comparator);
+        _edgeOrder = null;
+    }
+
+    /** Returns the comparator that orders vertices(): by label, if labels
+     *  are Comparable, and otherwise (or among equal labels) by id. */
+    Comparator<Vertex> vertexComparator() {
+        return new VertexComparator();
+    }
+
+    /** Returns a comparator ordering edges by their labels according to
+     *  LABELCOMPARATOR and then by id, or null if LABELCOMPARATOR is
+     *  null. */
+    Comparator<Edge> edgeComparator(Comparator<ELabel> labelComparator) {
+        return labelComparator == null ? null
+            : new EdgeComparator(labelComparator);
+    }
+
+    /** Returns a list of the N non-null items of ITEMS, sorted by
+     *  COMPARATOR, or in their order in ITEMS if COMPARATOR is null. */
+    private static <T> List<T> sorted(List<T> items, int n,
+                                      Comparator<? super T> comparator) {
+        List<T> result = new ArrayList<T>(n);
+        for (T item : items) {
+            if (item != null) {
+                result.add(item);
+            }
+        }
+        if (comparator != null) {
+            Collections.sort(result, comparator);
+        }
+        return result;
     }
 
     /** Returns the natural ordering on T, as a Comparator.  For
@@ -373,18 +749,13 @@ public abstract class Graph<VLabel, ELabel> {
         public int compare(Vertex v0, Vertex v1) {
             VLabel l0 = v0.getLabel();
             VLabel l1 = v1.getLabel();
-            if (l0 == null || l1 == null) {
-                return 1;
-            } else if (l0 instanceof Comparable) {
+            if (l0 != null && l1 != null && l0 instanceof Comparable) {
                 int val = ((Comparable<? super VLabel>) l0).compareTo(l1);
                 if (val != 0) {
                     return val;
                 }
             }
-
-            Integer v0hash = v0.hashCode();
-            Integer v1hash = v1.hashCode();
-            return Integer.compare(v0hash, v1hash);
+            return Integer.compare(v0.id(), v1.id());
         }
 
     }
@@ -392,13 +763,8 @@ public abstract class Graph<VLabel, ELabel> {
     /** Compares Edges, possibly using a Comparator<ELabel>. */
     private class EdgeComparator implements Comparator<Edge> {
 
-        /** Default constructor for EdgeComparator. */
-        EdgeComparator() {
-            _labelComparator = null;
-        }
-
-        /** Alternate constructor for EdgeComparator. Takes in LABELCOMPARATOR
-         *  to compare vertices with. */
+        /** Constructor for EdgeComparator. Takes in LABELCOMPARATOR to
+         *  compare edge labels with. */
         EdgeComparator(Comparator<ELabel> labelComparator) {
             _labelComparator = labelComparator;
         }
@@ -407,24 +773,163 @@ public abstract class Graph<VLabel, ELabel> {
         public int compare(Edge e0, Edge e1) {
             ELabel l0 = e0.getLabel();
             ELabel l1 = e1.getLabel();
-            if (l0 == null || l1 == null) {
-                return 1;
-            } else if (_labelComparator != null) {
+            if (l0 != null && l1 != null) {
                 int val = _labelComparator.compare(l0, l1);
                 if (val != 0) {
                     return val;
                 }
             }
-
-            Integer e0hash = e0.hashCode();
-            Integer e1hash = e1.hashCode();
-            return Integer.compare(e0hash, e1hash);
+            return Integer.compare(e0.id(), e1.id());
         }
 
         /** ELabel Comparator. */
         private final Comparator<ELabel> _labelComparator;
     }
 
+    /** Hands out dense non-negative integer ids, reusing those released
+     *  (most recently released first) before extending the range. */
+    private static class IdAllocator {
+
+        /** Returns an unused id. */
+        int allocate() {
+            if (_freeCount > 0) {
+                _freeCount -= 1;
+                return _free[_freeCount];
+            }
+            _bound += 1;
+            return _bound - 1;
+        }
+
+        /** Makes ID, which was allocated by me, available again. */
+        void release(int id) {
+            if (_freeCount == _free.length) {
+                _free = Arrays.copyOf(_free, Math.max(8, 2 * _freeCount));
+            }
+            _free[_freeCount] = id;
+            _freeCount += 1;
+        }
+
+        /** Returns an upper bound (exclusive) on the ids I have handed
+         *  out. */
+        int bound() {
+            return _bound;
+        }
+
+        /** Released ids, in _free[0 .. _freeCount-1]. */
+        private int[] _free = new int[0];
+        /** Number of released ids. */
+        private int _freeCount;
+        /** One more than the largest id handed out. */
+        private int _bound;
+    }
+
+    /** A list of objects indexed by id that grows as needed to hold any
+     *  id it is given. */
+    private static class IdList<T> extends ArrayList<T> {
+
+        @Override
+        public T set(int id, T value) {
+            while (id >= size()) {
+                add(null);
+            }
+            return super.set(id, value);
+        }
+    }
+
+    /** A hash table from the ids of the neighbors of a vertex to the edges
+     *  leading to them, using open addressing with linear probing.  Several
+     *  edges may have the same neighbor; each has its own entry. */
+    private class NeighborIndex {
+
+        /** An empty index with room for at least N entries before it must
+         *  grow. */
+        NeighborIndex(int n) {
+            int capacity = 4;
+            while (capacity < 2 * n) {
+                capacity *= 2;
+            }
+            _keys = new int[capacity];
+            _edges = newEdgeArray(capacity);
+        }
+
+        /** Adds an entry mapping KEY to E. */
+        void add(int key, Edge e) {
+            if (2 * (_size + 1) > _edges.length) {
+                Edge[] edges = _edges;
+                int[] keys = _keys;
+                _keys = new int[2 * keys.length];
+                _edges = newEdgeArray(2 * edges.length);
+                _size = 0;
+                for (int i = 0; i < edges.length; i += 1) {
+                    if (edges[i] != null) {
+                        add(keys[i], edges[i]);
+                    }
+                }
+            }
+            int i = home(key);
+            while (_edges[i] != null) {
+                i = (i + 1) & (_edges.length - 1);
+            }
+            _keys[i] = key;
+            _edges[i] = e;
+            _size += 1;
+        }
+
+        /** Removes the entry mapping KEY to E, which must be present,
+         *  moving later entries of its probe sequence back so that no
+         *  deleted markers are needed. */
+        void remove(int key, Edge e) {
+            int mask = _edges.length - 1;
+            int i = home(key);
+            while (_edges[i] != e) {
+                i = (i + 1) & mask;
+            }
+            for (int j = (i + 1) & mask; _edges[j] != null;
+                 j = (j + 1) & mask) {
+                int h = home(_keys[j]);
+                if (((j - h) & mask) >= ((j - i) & mask)) {
+                    _keys[i] = _keys[j];
+                    _edges[i] = _edges[j];
+                    i = j;
+                }
+            }
+            _edges[i] = null;
+            _size -= 1;
+        }
+
+        /** Returns true iff some entry maps KEY to an edge, which must be
+         *  labeled LABEL unless ANYLABEL. */
+        boolean contains(int key, boolean anyLabel, ELabel label) {
+            int mask = _edges.length - 1;
+            for (int i = home(key); _edges[i] != null; i = (i + 1) & mask) {
+                if (_keys[i] == key
+                    && (anyLabel || _edges[i].getLabel().equals(label))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Returns the first position at which KEY may be found. */
+        private int home(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (_edges.length - 1);
+        }
+
+        /** Returns a new array of N edges. */
+        @SuppressWarnings("unchecked")
+        private Edge[] newEdgeArray(int n) {
+            return (Edge[]) new Graph.Edge[n];
+        }
+
+        /** Neighbor ids of the entries. */
+        private int[] _keys;
+        /** Edges of the entries, null in empty positions. */
+        private Edge[] _edges;
+        /** Number of entries. */
+        private int _size;
+    }
+
     /** Class that iterates over the vertices on the opposite side
      *  of the edges returned by iteration ITER from some adjacent vertex V. */
     private class OtherVertexIterator implements Iterator<Vertex> {
@@ -456,9 +961,36 @@ public abstract class Graph<VLabel, ELabel> {
         private final Iteration<Edge> _iter;
     }
 
-    /** Vertices in this graph. */
-    private TreeSet<Vertex> _vertices;
-    /** Edges in this graph. */
-    private TreeSet<Edge> _edges;
+    /** A vertex losing at least 1/COMPACTION_RATIO of its edges in a
+     *  removeAll has its adjacency lists compacted. */
+    private static final int COMPACTION_RATIO = 4;
+    /** A vertex with at least INDEX_THRESHOLD outgoing edges keeps a
+     *  NeighborIndex of them. */
+    private static final int INDEX_THRESHOLD = 16;
+
+    /** Number of vertices in this graph. */
+    private int _vertexCount;
+    /** Number of edges in this graph. */
+    private int _edgeCount;
+    /** My vertices in the order delivered by vertices(), or null if they
+     *  have changed since that order was last computed. */
+    private List<Vertex> _vertexOrder;
+    /** My edges in the order delivered by edges(), or null if they have
+     *  changed since that order was last computed. */
+    private List<Edge> _edgeOrder;
+    /** Determines the order of edges(), which is by id if null. */
+    private Comparator<Edge> _edgeComparator;
+    /** Allocator of vertex ids. */
+    private final IdAllocator _vertexIds = new IdAllocator();
+    /** Allocator of edge ids. */
+    private final IdAllocator _edgeIds = new IdAllocator();
+    /** My vertices, indexed by id (null for free ids). */
+    private final IdList<Vertex> _vertexById = new IdList<Vertex>();
+    /** My edges, indexed by id (null for free ids). */
+    private final IdList<Edge> _edgeById = new IdList<Edge>();
+    /** Objects to be notified of changes to me.  Copied on write, so that
+     *  listeners may be added while other threads are changing me. */
+    private final List<GraphListener<VLabel, ELabel>> _listeners =
+        new CopyOnWriteArrayList<GraphListener<VLabel, ELabel>>();
 
 }
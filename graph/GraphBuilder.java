@@ -0,0 +1,162 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Accumulates the vertices and edges of a graph and then adds them to a
+ *  graph all at once.  Vertices are named by their indices in order of
+ *  addition (starting at 0).  Edges are kept in flat arrays until the
+ *  graph is built; building first counts the edges incident on each
+ *  vertex and sizes every adjacency list and table of the graph exactly,
+ *  and then fills them, so no storage is grown or copied along the way.
+ *  The result is the same as adding the vertices and then the edges to
+ *  the graph one at a time, in the same order.
+ *
+ *  Giving the expected numbers of vertices and edges to the constructor
+ *  avoids growing the builder's own arrays.  VLABEL and ELABEL are the
+ *  types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class GraphBuilder<VLabel, ELabel> {
+
+    /** An empty builder. */
+    public GraphBuilder() {
+        this(0, 0);
+    }
+
+    /** An empty builder with room for VERTICES vertices and EDGES edges. */
+    public GraphBuilder(int vertices, int edges) {
+        _vlabels = new ArrayList<VLabel>(vertices);
+        _from = new int[edges];
+        _to = new int[edges];
+        _elabels = new Object[edges];
+    }
+
+    /** Adds a vertex labeled LABEL and returns its index. */
+    public int addVertex(VLabel label) {
+        _vlabels.add(label);
+        return _vlabels.size() - 1;
+    }
+
+    /** Adds an edge labeled LABEL from the vertex with index FROM to the
+     *  one with index TO (between them, in an undirected graph). */
+    public void addEdge(int from, int to, ELabel label) {
+        if (from < 0 || from >= _vlabels.size()
+            || to < 0 || to >= _vlabels.size()) {
+            throw new IndexOutOfBoundsException("no such vertex");
+        }
+        if (_edgeCount == _from.length) {
+            int n = Math.max(8, 2 * _edgeCount);
+            _from = Arrays.copyOf(_from, n);
+            _to = Arrays.copyOf(_to, n);
+            _elabels = Arrays.copyOf(_elabels, n);
+        }
+        _from[_edgeCount] = from;
+        _to[_edgeCount] = to;
+        _elabels[_edgeCount] = label;
+        _edgeCount += 1;
+    }
+
+    /** Returns the number of vertices added so far. */
+    public int vertexSize() {
+        return _vlabels.size();
+    }
+
+    /** Returns the number of edges added so far. */
+    public int edgeSize() {
+        return _edgeCount;
+    }
+
+    /** Returns a new DirectedGraph holding my vertices and edges.  The
+     *  vertex with index i is vertex(i) afterwards. */
+    public DirectedGraph<VLabel, ELabel> buildDirected() {
+        DirectedGraph<VLabel, ELabel> result =
+            new DirectedGraph<VLabel, ELabel>();
+        _built = addTo(result);
+        return result;
+    }
+
+    /** Returns a new UndirectedGraph holding my vertices and edges.  The
+     *  vertex with index i is vertex(i) afterwards. */
+    public UndirectedGraph<VLabel, ELabel> buildUndirected() {
+        UndirectedGraph<VLabel, ELabel> result =
+            new UndirectedGraph<VLabel, ELabel>();
+        _built = addTo(result);
+        return result;
+    }
+
+    /** Returns a new IntGraph holding my vertices and edges, directed iff
+     *  DIRECTED, without their labels.  Vertex i and edge e of the result
+     *  are the vertex with index i and the eth edge added. */
+    public IntGraph buildIntGraph(boolean directed) {
+        return new IntGraph(_vlabels.size(), _from, _to, _edgeCount,
+                            directed);
+    }
+
+    /** Returns the weights of my edges according to EWEIGHTER, indexed as
+     *  the edges of buildIntGraph. */
+    @SuppressWarnings("unchecked")
+    public double[] weights(Weighting<? super ELabel> eweighter) {
+        double[] result = new double[_edgeCount];
+        for (int i = 0; i < _edgeCount; i += 1) {
+            result[i] = eweighter.weight((ELabel) _elabels[i]);
+        }
+        return result;
+    }
+
+    /** Returns the vertex with index I in the graph most recently returned
+     *  by buildDirected or buildUndirected. */
+    public Graph<VLabel, ELabel>.Vertex vertex(int i) {
+        if (_built == null) {
+            throw new IllegalStateException("no graph built");
+        }
+        return _built.get(i);
+    }
+
+    /** Adds my vertices and edges to G, returning the new vertices in
+     *  order of index. */
+    @SuppressWarnings("unchecked")
+    public List<Graph<VLabel, ELabel>.Vertex> addTo(Graph<VLabel, ELabel> G) {
+        int n = _vlabels.size();
+        G.reserve(n, _edgeCount);
+        List<Graph<VLabel, ELabel>.Vertex> vertices =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(n);
+        for (VLabel label : _vlabels) {
+            vertices.add(G.add(label));
+        }
+
+        int[] out = new int[n], in = new int[n];
+        for (int i = 0; i < _edgeCount; i += 1) {
+            out[_from[i]] += 1;
+            in[_to[i]] += 1;
+        }
+        for (int v = 0; v < n; v += 1) {
+            if (G.isDirected()) {
+                vertices.get(v).reserve(out[v], in[v]);
+            } else {
+                vertices.get(v).reserve(out[v] + in[v], 0);
+            }
+        }
+
+        for (int i = 0; i < _edgeCount; i += 1) {
+            G.add(vertices.get(_from[i]), vertices.get(_to[i]),
+                  (ELabel) _elabels[i]);
+        }
+        return vertices;
+    }
+
+    /** Labels of my vertices, by index. */
+    private final List<VLabel> _vlabels;
+    /** Indices of the first ends of my edges, in _from[0 .. _edgeCount-1]. */
+    private int[] _from;
+    /** Indices of the second ends of my edges. */
+    private int[] _to;
+    /** Labels of my edges. */
+    private Object[] _elabels;
+    /** Number of edges added. */
+    private int _edgeCount;
+    /** Vertices of the last graph built, by index, or null if none. */
+    private List<Graph<VLabel, ELabel>.Vertex> _built;
+
+}
@@ -0,0 +1,23 @@
+package graph;
+
+/** An object notified of structural changes to a Graph, for keeping derived
+ *  data (such as a ComponentIndex) up to date.  Each method is called
+ *  after the change it reports.  VLABEL and ELABEL are the types of vertex
+ *  and edge labels of the graph.
+ *  @author Aleks Kamko
+ */
+interface GraphListener<VLabel, ELabel> {
+
+    /** Reports that V was added. */
+    void vertexAdded(Graph<VLabel, ELabel>.Vertex v);
+
+    /** Reports that E was added. */
+    void edgeAdded(Graph<VLabel, ELabel>.Edge e);
+
+    /** Reports that V was removed. */
+    void vertexRemoved(Graph<VLabel, ELabel>.Vertex v);
+
+    /** Reports that E was removed. */
+    void edgeRemoved(Graph<VLabel, ELabel>.Edge e);
+
+}
@@ -0,0 +1,356 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Streams over the vertices and edges of graphs.  The streams of all
+ *  vertices or edges read the id-indexed tables of a graph directly and
+ *  split by halving ranges of ids, so they parallelize with the usual
+ *  fork-join splitting (as by calling parallel()).  The traversal streams
+ *  are lazy: each vertex's successors are examined only when it is
+ *  reached, so a consumer that short-circuits (by findFirst, anyMatch,
+ *  limit, and so on) ends the traversal without exceptions.
+ *
+ *  As for iterations, changing a graph while one of its streams is in use
+ *  has undefined results, and a parallel stream must not be used while
+ *  the graph is changed.
+ *  @author Aleks Kamko
+ */
+public class GraphStreams {
+
+    /** Returns a stream of the vertices of G, in no particular order.
+     *  VLABEL and ELABEL are the types of vertex and edge labels. */
+    public static <VLabel, ELabel>
+    Stream<Graph<VLabel, ELabel>.Vertex> vertices(
+        Graph<VLabel, ELabel> G) {
+        return StreamSupport.stream(vertexRange(G, 0, G.vertexIdBound()),
+                                    false);
+    }
+
+    /** Returns a stream of the edges of G, in no particular order.  VLABEL
+     *  and ELABEL are the types of vertex and edge labels. */
+    public static <VLabel, ELabel>
+    Stream<Graph<VLabel, ELabel>.Edge> edges(
+        Graph<VLabel, ELabel> G) {
+        return StreamSupport.stream(edgeRange(G, 0, G.edgeIdBound()), false);
+    }
+
+    /** Returns a lazy stream of the vertices of G reachable from V0, in
+     *  breadth-first order, starting with V0.  VLABEL and ELABEL are the
+     *  types of vertex and edge labels. */
+    public static <VLabel, ELabel>
+    Stream<Graph<VLabel, ELabel>.Vertex> breadthFirst(
+        final Graph<VLabel, ELabel> G,
+        final Graph<VLabel, ELabel>.Vertex v0) {
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<Graph<VLabel, ELabel>.Vertex>(
+                Long.MAX_VALUE, TRAVERSAL) {
+                @Override
+                public boolean tryAdvance(
+                    Consumer<? super Graph<VLabel, ELabel>.Vertex> action) {
+                    if (_fringe == null) {
+                        _fringe =
+                            new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
+                        _marked = new BitSet(G.vertexIdBound());
+                        _cursor = new EdgeCursor<VLabel, ELabel>(G);
+                        _fringe.add(v0);
+                        _marked.set(v0.id());
+                    }
+                    Graph<VLabel, ELabel>.Vertex v = _fringe.poll();
+                    if (v == null) {
+                        return false;
+                    }
+                    _cursor.outEdges(v);
+                    while (_cursor.hasNext()) {
+                        _cursor.next();
+                        Graph<VLabel, ELabel>.Vertex u = _cursor.target();
+                        if (!_marked.get(u.id())) {
+                            _marked.set(u.id());
+                            _fringe.add(u);
+                        }
+                    }
+                    action.accept(v);
+                    return true;
+                }
+
+                /** Reached vertices whose successors are unexamined. */
+                private ArrayDeque<Graph<VLabel, ELabel>.Vertex> _fringe;
+                /** Ids of reached vertices. */
+                private BitSet _marked;
+                /** Cursor over the successors of a vertex. */
+                private EdgeCursor<VLabel, ELabel> _cursor;
+            }, false);
+    }
+
+    /** Returns a lazy stream of the vertices of G reachable from V0, in
+     *  depth-first preorder, starting with V0.  Successors are explored in
+     *  the order of outEdges.  VLABEL and ELABEL are the types of vertex
+     *  and edge labels. */
+    public static <VLabel, ELabel>
+    Stream<Graph<VLabel, ELabel>.Vertex> depthFirstPreorder(
+        final Graph<VLabel, ELabel> G,
+        final Graph<VLabel, ELabel>.Vertex v0) {
+        return StreamSupport.stream(
+            new Spliterators.AbstractSpliterator<Graph<VLabel, ELabel>.Vertex>(
+                Long.MAX_VALUE, TRAVERSAL) {
+                @Override
+                public boolean tryAdvance(
+                    Consumer<? super Graph<VLabel, ELabel>.Vertex> action) {
+                    if (_path == null) {
+                        _path = new ArrayList<EdgeCursor<VLabel, ELabel>>();
+                        _marked = new BitSet(G.vertexIdBound());
+                        return enter(v0, action);
+                    }
+                    while (_depth > 0) {
+                        EdgeCursor<VLabel, ELabel> top = _path.get(_depth - 1);
+                        if (!top.hasNext()) {
+                            _depth -= 1;
+                            continue;
+                        }
+                        top.next();
+                        Graph<VLabel, ELabel>.Vertex u = top.target();
+                        if (!_marked.get(u.id())) {
+                            return enter(u, action);
+                        }
+                    }
+                    return false;
+                }
+
+                /** Marks V, pushes a cursor over its edges, and passes it
+                 *  to ACTION.  Returns true. */
+                private boolean enter(
+                    Graph<VLabel, ELabel>.Vertex v,
+                    Consumer<? super Graph<VLabel, ELabel>.Vertex> action) {
+                    _marked.set(v.id());
+                    if (_depth == _path.size()) {
+                        _path.add(new EdgeCursor<VLabel, ELabel>(G));
+                    }
+                    _path.get(_depth).outEdges(v);
+                    _depth += 1;
+                    action.accept(v);
+                    return true;
+                }
+
+                /** Cursors over the edges of the vertices on the current
+                 *  path, reused as the path shrinks and grows. */
+                private ArrayList<EdgeCursor<VLabel, ELabel>> _path;
+                /** Length of the current path. */
+                private int _depth;
+                /** Ids of reached vertices. */
+                private BitSet _marked;
+            }, false);
+    }
+
+    /** Returns a lazy stream of the vertices of G reachable from V0, in
+     *  breadth-first order, starting with V0. */
+    public static IntStream breadthFirst(final IntGraph G, final int v0) {
+        return StreamSupport.intStream(
+            new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE,
+                                                    TRAVERSAL) {
+                @Override
+                public boolean tryAdvance(IntConsumer action) {
+                    if (_fringe == null) {
+                        _fringe = new int[G.vertexSize()];
+                        _marked = new BitSet(G.vertexSize());
+                        _fringe[_tail] = v0;
+                        _tail += 1;
+                        _marked.set(v0);
+                    }
+                    if (_head == _tail) {
+                        return false;
+                    }
+                    int v = _fringe[_head];
+                    _head += 1;
+                    for (int k = 0; k < G.outDegree(v); k += 1) {
+                        int u = G.other(G.outEdge(v, k), v);
+                        if (!_marked.get(u)) {
+                            _marked.set(u);
+                            _fringe[_tail] = u;
+                            _tail += 1;
+                        }
+                    }
+                    action.accept(v);
+                    return true;
+                }
+
+                /** Reached vertices, in order; those from _head on have
+                 *  unexamined successors. */
+                private int[] _fringe;
+                /** Bounds of the unexamined part of _fringe. */
+                private int _head, _tail;
+                /** Reached vertices. */
+                private BitSet _marked;
+            }, false);
+    }
+
+    /** Returns a lazy stream of the vertices of G reachable from V0, in
+     *  depth-first preorder, starting with V0.  Successors are explored in
+     *  order of their edges. */
+    public static IntStream depthFirstPreorder(final IntGraph G,
+                                               final int v0) {
+        return StreamSupport.intStream(
+            new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE,
+                                                    TRAVERSAL) {
+                @Override
+                public boolean tryAdvance(IntConsumer action) {
+                    if (_path == null) {
+                        _path = new int[G.vertexSize()];
+                        _next = new int[G.vertexSize()];
+                        _marked = new BitSet(G.vertexSize());
+                        return enter(v0, action);
+                    }
+                    while (_depth > 0) {
+                        int v = _path[_depth - 1], k = _next[_depth - 1];
+                        if (k == G.outDegree(v)) {
+                            _depth -= 1;
+                            continue;
+                        }
+                        _next[_depth - 1] = k + 1;
+                        int u = G.other(G.outEdge(v, k), v);
+                        if (!_marked.get(u)) {
+                            return enter(u, action);
+                        }
+                    }
+                    return false;
+                }
+
+                /** Marks V, pushes it on the current path, and passes it
+                 *  to ACTION.  Returns true. */
+                private boolean enter(int v, IntConsumer action) {
+                    _marked.set(v);
+                    _path[_depth] = v;
+                    _next[_depth] = 0;
+                    _depth += 1;
+                    action.accept(v);
+                    return true;
+                }
+
+                /** The vertices on the current path. */
+                private int[] _path;
+                /** Index of the next edge to explore from each vertex of
+                 *  _path. */
+                private int[] _next;
+                /** Length of the current path. */
+                private int _depth;
+                /** Reached vertices. */
+                private BitSet _marked;
+            }, false);
+    }
+
+    /** Returns a spliterator over the vertices of G whose ids are in
+     *  [LO, HI). */
+    private static <VLabel, ELabel>
+    IdSpliterator<Graph<VLabel, ELabel>.Vertex> vertexRange(
+        final Graph<VLabel, ELabel> G, int lo, int hi) {
+        return new IdSpliterator<Graph<VLabel, ELabel>.Vertex>(lo, hi) {
+            @Override
+            Graph<VLabel, ELabel>.Vertex get(int id) {
+                return G.vertex(id);
+            }
+
+            @Override
+            IdSpliterator<Graph<VLabel, ELabel>.Vertex> split(int lo0,
+                                                              int hi0) {
+                return vertexRange(G, lo0, hi0);
+            }
+        };
+    }
+
+    /** Returns a spliterator over the edges of G whose ids are in
+     *  [LO, HI). */
+    private static <VLabel, ELabel>
+    IdSpliterator<Graph<VLabel, ELabel>.Edge> edgeRange(
+        final Graph<VLabel, ELabel> G, int lo, int hi) {
+        return new IdSpliterator<Graph<VLabel, ELabel>.Edge>(lo, hi) {
+            @Override
+            Graph<VLabel, ELabel>.Edge get(int id) {
+                return G.edge(id);
+            }
+
+            @Override
+            IdSpliterator<Graph<VLabel, ELabel>.Edge> split(int lo0,
+                                                            int hi0) {
+                return edgeRange(G, lo0, hi0);
+            }
+        };
+    }
+
+    /** A spliterator over the items whose ids lie in a range, skipping
+     *  unused ids, which splits by halving the range. */
+    private abstract static class IdSpliterator<T> implements Spliterator<T> {
+
+        /** A spliterator over the items with ids in [LO, HI). */
+        IdSpliterator(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        /** Returns the item whose id is ID, or null if none. */
+        abstract T get(int id);
+
+        /** Returns a spliterator like me over [LO, HI). */
+        abstract IdSpliterator<T> split(int lo, int hi);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (_lo < _hi) {
+                T item = get(_lo);
+                _lo += 1;
+                if (item != null) {
+                    action.accept(item);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; _lo < _hi; _lo += 1) {
+                T item = get(_lo);
+                if (item != null) {
+                    action.accept(item);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (_hi - _lo < 2 * MIN_SPLIT) {
+                return null;
+            }
+            int mid = (_lo + _hi) >>> 1;
+            Spliterator<T> result = split(_lo, mid);
+            _lo = mid;
+            return result;
+        }
+
+        @Override
+        public long estimateSize() {
+            return _hi - _lo;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+
+        /** Bounds of my remaining ids. */
+        private int _lo, _hi;
+    }
+
+    /** Characteristics of traversal spliterators. */
+    private static final int TRAVERSAL =
+        Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+    /** Fewest ids in each half of a split. */
+    private static final int MIN_SPLIT = 256;
+
+}
@@ -0,0 +1,555 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** One version of a VersionedGraph: either a draft, which only its writer
+ *  uses and which may be changed freely, or a published version, which is
+ *  read-only and may be shared among any number of threads.
+ *
+ *  Vertices and edges, and the adjacency of each vertex, are kept in
+ *  tables indexed by id.  Each table is divided into chunks of CHUNK
+ *  entries; a draft starts out sharing all chunks with the version it was
+ *  made from and copies a chunk only when it first changes one of its
+ *  entries.  The adjacency of a vertex in a published version is an array
+ *  that is never modified; a draft keeps the adjacency of the vertices it
+ *  changes in lists of its own until it is committed, together with the
+ *  position of each edge in those lists, so that removing an edge takes
+ *  constant time (the last edge of each list takes its place).  Ids of
+ *  removed vertices and edges are reused by later versions.
+ *
+ *  A draft notifies the listeners added to it (such as a ComponentIndex)
+ *  of each change, as other graphs do.  Listeners are not carried over
+ *  from one version to the next: a listener on a published version is
+ *  never notified, since that version never changes.
+ *
+ *  The operations that add or remove vertices or edges, and orderEdges,
+ *  apply only to drafts; on published versions they throw
+ *  UnsupportedOperationException.  VLABEL and ELABEL are the types of
+ *  vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class GraphVersion<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** The empty first version of OWNER, which is directed iff
+     *  DIRECTED. */
+    GraphVersion(VersionedGraph<VLabel, ELabel> owner, boolean directed) {
+        _owner = owner;
+        _number = 0;
+        _directed = directed;
+        _vertices = new Table<Vertex>();
+        _edges = new Table<Edge>();
+        _out = new Table<Edge[]>();
+        _in = new Table<Edge[]>();
+        _vertexIds = new Ids();
+        _edgeIds = new Ids();
+        _published = true;
+    }
+
+    /** A draft of the version following BASE. */
+    GraphVersion(GraphVersion<VLabel, ELabel> base) {
+        _owner = base._owner;
+        _base = base;
+        _number = base._number + 1;
+        _directed = base._directed;
+        _vertices = new Table<Vertex>(base._vertices);
+        _edges = new Table<Edge>(base._edges);
+        _out = new Table<Edge[]>(base._out);
+        _in = new Table<Edge[]>(base._in);
+        _vertexIds = new Ids(base._vertexIds);
+        _edgeIds = new Ids(base._edgeIds);
+        _vertexCount = base._vertexCount;
+        _edgeCount = base._edgeCount;
+        _labelComparator = base._labelComparator;
+        _vertexOrder = base._vertexOrder;
+        _edgeOrder = base._edgeOrder;
+        _changed = new HashMap<Integer, List<Edge>>();
+        _slots = new HashMap<Integer, Integer>();
+    }
+
+    /** Returns my version number: 0 for the empty first version, and one
+     *  more than that of the version I was made from otherwise. */
+    public long number() {
+        return _number;
+    }
+
+    /** Returns true iff I have been published (and so am read-only). */
+    public boolean isPublished() {
+        return _published;
+    }
+
+    /** Publishes me, a draft, as the current version of my graph, making
+     *  all my changes visible to readers at once.  Throws
+     *  ConcurrentModificationException, without publishing me, if some
+     *  other draft has been committed since I was made.  In either case,
+     *  I may no longer be changed. */
+    public void commit() {
+        checkDraft();
+        for (Map.Entry<Integer, List<Edge>> entry : _changed.entrySet()) {
+            int key = entry.getKey();
+            List<Edge> edges = entry.getValue();
+            (key % 2 == 0 ? _out : _in).set(key / 2, edges.isEmpty() ? null
+                : edges.toArray(newEdgeArray(edges.size())));
+        }
+        _changed = null;
+        _slots = null;
+        _vertices.freeze();
+        _edges.freeze();
+        _out.freeze();
+        _in.freeze();
+        _published = true;
+        if (!_owner.publish(_base, this)) {
+            throw new ConcurrentModificationException(
+                "another version was committed first");
+        }
+        _base = null;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexCount;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeCount;
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        return adjacency(v, false).size();
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        return adjacency(v, true).size();
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        for (Edge e : adjacency(u, false)) {
+            if (e.getV(u) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        for (Edge e : adjacency(u, false)) {
+            if (e.getV(u) == v && e.getLabel().equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        checkDraft();
+        Vertex v = new Vertex(label, _vertexIds.allocate());
+        _vertices.set(v.id(), v);
+        _vertexCount += 1;
+        _vertexOrder = null;
+        notifyVertexAdded(v);
+        return v;
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        checkDraft();
+        Edge e = new Edge(from, to, label, _edgeIds.allocate());
+        _edges.set(e.id(), e);
+        _edgeCount += 1;
+        _edgeOrder = null;
+        append(from, false, e);
+        append(to, _directed, e);
+        notifyEdgeAdded(e);
+        return e;
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        checkDraft();
+        if (!containsVertex(v)) {
+            return;
+        }
+        List<Edge> elist = new ArrayList<Edge>(adjacency(v, false));
+        elist.addAll(adjacency(v, true));
+        removeAll(elist);
+        _vertices.set(v.id(), null);
+        _vertexIds.release(v.id());
+        _vertexCount -= 1;
+        _vertexOrder = null;
+        notifyVertexRemoved(v);
+    }
+
+    @Override
+    public void remove(Edge e) {
+        checkDraft();
+        if (!containsEdge(e)) {
+            return;
+        }
+        removeAt(e.getV0(), false, 2 * e.id());
+        removeAt(e.getV1(), _directed, 2 * e.id() + 1);
+        _edges.set(e.id(), null);
+        _edgeIds.release(e.id());
+        _edgeCount -= 1;
+        _edgeOrder = null;
+        notifyEdgeRemoved(e);
+    }
+
+    @Override
+    void removeAll(Collection<? extends Edge> edges) {
+        for (Edge e : edges) {
+            remove(e);
+        }
+    }
+
+    @Override
+    void reserve(int vertices, int edges) {
+        checkDraft();
+    }
+
+    @Override
+    int vertexIdBound() {
+        return _vertexIds.bound();
+    }
+
+    @Override
+    int edgeIdBound() {
+        return _edgeIds.bound();
+    }
+
+    @Override
+    Vertex vertex(int id) {
+        return id >= 0 ? _vertices.get(id) : null;
+    }
+
+    @Override
+    Edge edge(int id) {
+        return id >= 0 ? _edges.get(id) : null;
+    }
+
+    @Override
+    Edge outEdge(Vertex v, int k) {
+        return adjacent(v, false, k);
+    }
+
+    @Override
+    Edge inEdge(Vertex v, int k) {
+        return adjacent(v, true, k);
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        List<Vertex> order = _vertexOrder;
+        if (order == null) {
+            order = new ArrayList<Vertex>(_vertexCount);
+            for (int id = 0; id < vertexIdBound(); id += 1) {
+                if (_vertices.get(id) != null) {
+                    order.add(_vertices.get(id));
+                }
+            }
+            Collections.sort(order, vertexComparator());
+            _vertexOrder = order;
+        }
+        return Iteration.iteration(order);
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        List<Edge> order = _edgeOrder;
+        if (order == null) {
+            order = new ArrayList<Edge>(_edgeCount);
+            for (int id = 0; id < edgeIdBound(); id += 1) {
+                if (_edges.get(id) != null) {
+                    order.add(_edges.get(id));
+                }
+            }
+            if (_labelComparator != null) {
+                Collections.sort(order, edgeComparator(_labelComparator));
+            }
+            _edgeOrder = order;
+        }
+        return Iteration.iteration(order);
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        return Iteration.iteration(adjacency(v, false));
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        return Iteration.iteration(adjacency(v, true));
+    }
+
+    /** Orders edges() by COMPARATOR, in me and in the versions that
+     *  follow me. */
+    @Override
+    public void orderEdges(Comparator<ELabel> comparator) {
+        checkDraft();
+        _labelComparator = comparator;
+        _edgeOrder = null;
+    }
+
+    /** Throws UnsupportedOperationException if I have been published. */
+    private void checkDraft() {
+        if (_published) {
+            throw new UnsupportedOperationException(
+                "published versions are read-only");
+        }
+    }
+
+    /** Returns the incoming edges of V if INCOMING, and otherwise its
+     *  outgoing edges (all its edges, in an undirected graph). */
+    private List<Edge> adjacency(Vertex v, boolean incoming) {
+        if (_changed != null) {
+            List<Edge> edges = _changed.get(2 * v.id() + (incoming ? 1 : 0));
+            if (edges != null) {
+                return edges;
+            }
+        }
+        Edge[] edges = (incoming ? _in : _out).get(v.id());
+        if (edges == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(edges);
+    }
+
+    /** Returns the Kth element of adjacency(V, INCOMING), without creating
+     *  a list. */
+    private Edge adjacent(Vertex v, boolean incoming, int k) {
+        if (_changed != null) {
+            List<Edge> edges = _changed.get(2 * v.id() + (incoming ? 1 : 0));
+            if (edges != null) {
+                return edges.get(k);
+            }
+        }
+        return (incoming ? _in : _out).get(v.id())[k];
+    }
+
+    /** Returns a list of the incoming edges of V if INCOMING, and otherwise
+     *  of its outgoing edges, that belongs to me, a draft, and may be
+     *  changed.  The first time, records the positions of its edges in
+     *  _slots. */
+    private List<Edge> changed(Vertex v, boolean incoming) {
+        int key = 2 * v.id() + (incoming ? 1 : 0);
+        List<Edge> edges = _changed.get(key);
+        if (edges == null) {
+            edges = new ArrayList<Edge>(adjacency(v, incoming));
+            _changed.put(key, edges);
+            for (int k = 0; k < edges.size(); k += 1) {
+                _slots.put(slotKey(edges.get(k), v, incoming, k), k);
+            }
+        }
+        return edges;
+    }
+
+    /** Adds E to the end of the incoming edges of V if INCOMING, and
+     *  otherwise of its outgoing edges. */
+    private void append(Vertex v, boolean incoming, Edge e) {
+        List<Edge> edges = changed(v, incoming);
+        edges.add(e);
+        _slots.put(slotKey(e, v, incoming, edges.size() - 1),
+                   edges.size() - 1);
+    }
+
+    /** Removes the entry whose key in _slots is KEY from the incoming
+     *  edges of V if INCOMING, and otherwise from its outgoing edges, by
+     *  moving the last of those edges into its place. */
+    private void removeAt(Vertex v, boolean incoming, int key) {
+        List<Edge> edges = changed(v, incoming);
+        int slot = _slots.get(key), last = edges.size() - 1;
+        if (slot != last) {
+            Edge moved = edges.get(last);
+            _slots.put(slotKey(moved, v, incoming, last), slot);
+            edges.set(slot, moved);
+        }
+        edges.remove(last);
+        _slots.remove(key);
+    }
+
+    /** Returns the key in _slots of E, found at position K of the incoming
+     *  edges of V if INCOMING, and otherwise of its outgoing edges: twice
+     *  the id of E, plus 1 if this is the entry for its second end.  (An
+     *  undirected loop appears twice in the same list; its first entry to
+     *  be recorded is that of its first end.) */
+    private int slotKey(Edge e, Vertex v, boolean incoming, int k) {
+        int key = 2 * e.id();
+        if (incoming || e.getV0() != v) {
+            return key + 1;
+        }
+        Integer slot = _slots.get(key);
+        return slot == null || slot == k ? key : key + 1;
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Edge[] newEdgeArray(int n) {
+        return (Edge[]) new Graph.Edge[n];
+    }
+
+    /** A table indexed by id, kept in chunks of CHUNK entries.  A table
+     *  copied from another shares all its chunks until it changes them. */
+    private static class Table<T> {
+
+        /** An empty table. */
+        Table() {
+            _chunks = new Object[0][];
+        }
+
+        /** A table with the same contents as BASE, which must no longer
+         *  change. */
+        Table(Table<T> base) {
+            _chunks = base._chunks.clone();
+            _owned = new boolean[_chunks.length];
+        }
+
+        /** Returns the entry for ID, or null if there is none. */
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            int c = id >>> CHUNK_BITS;
+            if (c >= _chunks.length || _chunks[c] == null) {
+                return null;
+            }
+            return (T) _chunks[c][id & (CHUNK - 1)];
+        }
+
+        /** Makes VALUE the entry for ID, first copying its chunk if that
+         *  is shared. */
+        void set(int id, T value) {
+            int c = id >>> CHUNK_BITS;
+            if (c >= _chunks.length) {
+                int n = Math.max(c + 1, 2 * _chunks.length);
+                _chunks = Arrays.copyOf(_chunks, n);
+                _owned = Arrays.copyOf(_owned, n);
+            }
+            if (!_owned[c]) {
+                _chunks[c] = _chunks[c] == null ? new Object[CHUNK]
+                    : _chunks[c].clone();
+                _owned[c] = true;
+            }
+            _chunks[c][id & (CHUNK - 1)] = value;
+        }
+
+        /** Records that I will not change again. */
+        void freeze() {
+            _owned = null;
+        }
+
+        /** My chunks, null for chunks with no entries. */
+        private Object[][] _chunks;
+        /** True for each of my chunks that is not shared, or null if I
+         *  may no longer change. */
+        private boolean[] _owned;
+    }
+
+    /** Hands out vertex or edge ids, reusing those released before
+     *  extending the range. */
+    private static class Ids {
+
+        /** An allocator that has handed out no ids. */
+        Ids() {
+            _free = new int[0];
+        }
+
+        /** An allocator that continues from BASE. */
+        Ids(Ids base) {
+            _free = Arrays.copyOf(base._free, base._freeCount);
+            _freeCount = base._freeCount;
+            _bound = base._bound;
+        }
+
+        /** Returns an unused id. */
+        int allocate() {
+            if (_freeCount > 0) {
+                _freeCount -= 1;
+                return _free[_freeCount];
+            }
+            _bound += 1;
+            return _bound - 1;
+        }
+
+        /** Makes ID available again. */
+        void release(int id) {
+            if (_freeCount == _free.length) {
+                _free = Arrays.copyOf(_free, Math.max(8, 2 * _freeCount));
+            }
+            _free[_freeCount] = id;
+            _freeCount += 1;
+        }
+
+        /** Returns an upper bound (exclusive) on the ids I have handed
+         *  out. */
+        int bound() {
+            return _bound;
+        }
+
+        /** Released ids, in _free[0 .. _freeCount-1]. */
+        private int[] _free;
+        /** Number of released ids. */
+        private int _freeCount;
+        /** One more than the largest id handed out. */
+        private int _bound;
+    }
+
+    /** Log base 2 of CHUNK. */
+    private static final int CHUNK_BITS = 6;
+    /** Number of entries in each chunk of a table. */
+    private static final int CHUNK = 1 << CHUNK_BITS;
+
+    /** The graph of which I am a version. */
+    private final VersionedGraph<VLabel, ELabel> _owner;
+    /** The version I was made from, while I am a draft. */
+    private GraphVersion<VLabel, ELabel> _base;
+    /** My version number. */
+    private final long _number;
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** True iff I have been published. */
+    private volatile boolean _published;
+    /** My vertices by id. */
+    private final Table<Vertex> _vertices;
+    /** My edges by id. */
+    private final Table<Edge> _edges;
+    /** The outgoing edges of each vertex, by vertex id. */
+    private final Table<Edge[]> _out;
+    /** The incoming edges of each vertex, by vertex id. */
+    private final Table<Edge[]> _in;
+    /** Allocator of vertex ids. */
+    private final Ids _vertexIds;
+    /** Allocator of edge ids. */
+    private final Ids _edgeIds;
+    /** Numbers of my vertices and edges. */
+    private int _vertexCount, _edgeCount;
+    /** Orders edges(), which are in id order if null. */
+    private Comparator<ELabel> _labelComparator;
+    /** My vertices in the order delivered by vertices(), or null if not
+     *  yet computed. */
+    private volatile List<Vertex> _vertexOrder;
+    /** My edges in the order delivered by edges(), or null if not yet
+     *  computed. */
+    private volatile List<Edge> _edgeOrder;
+    /** While I am a draft, the adjacency lists I have changed, keyed by
+     *  twice the vertex id, plus 1 for incoming edges. */
+    private Map<Integer, List<Edge>> _changed;
+    /** While I am a draft, the position of each edge in the lists of
+     *  _changed, keyed as described by slotKey. */
+    private Map<Integer, Integer> _slots;
+
+}
@@ -1,17 +1,11 @@
 package graph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.LinkedList;
 
-import java.util.Set;
-import java.util.HashSet;
-import java.util.TreeSet;
-
-import java.util.Map;
-import java.util.HashMap;
-
-import java.util.Comparator;
-
 /** Assorted graph algorithms.
  *  @author Aleks Kamko
  */
@@ -34,8 +28,9 @@ public final class Graphs {
      *              < minimum path length from V0 to V1.
      *  The final weights of other vertices are not defined.  If V1 is
      *  unreachable from V0, returns null and sets the minimum path weights of
-     *  all reachable nodes.  The distance to a node unreachable from V0 is
-     *  Double.POSITIVE_INFINITY. */
+     *  all reachable nodes.  The weights of vertices the search never
+     *  reaches are left unchanged, so the cost of a query does not depend
+     *  on the size of G. */
     public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
     shortestPath(Graph<VLabel, ELabel> G,
                  Graph<VLabel, ELabel>.Vertex V0,
@@ -43,53 +38,12 @@ public final class Graphs {
                  Distancer<? super VLabel> h,
                  Weighter<? super VLabel> vweighter,
                  Weighting<? super ELabel> eweighter) {
-        Set<Graph<VLabel, ELabel>.Vertex> closedSet =
-            new HashSet<Graph<VLabel, ELabel>.Vertex>();
-        TreeSet<Graph<VLabel, ELabel>.Vertex> openSet =
-            new TreeSet<Graph<VLabel, ELabel>.Vertex>
-            (new GenericVertexWeightOrderComparator<VLabel, ELabel>
-            (h, V1, vweighter));
-        Map<Graph<VLabel, ELabel>.Vertex,
-            Graph<VLabel, ELabel>.Edge> vertEdgeMap =
-            new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Graph<VLabel, ELabel>.Edge>();
-
-        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
-            vweighter.setWeight(v.getLabel(), Double.POSITIVE_INFINITY);
+        SearchState<VLabel, ELabel> state = takeState(G);
+        try {
+            return aStar(G, V0, V1, h, vweighter, eweighter, state);
+        } finally {
+            releaseState(state);
         }
-        vweighter.setWeight(V0.getLabel(), 0);
-        openSet.add(V0);
-
-        Graph<VLabel, ELabel>.Vertex v, u;
-        Double newScore, curScore;
-        while (!openSet.isEmpty()) {
-            v = openSet.pollFirst();
-            if (v == V1) {
-                return reconstructPath(vertEdgeMap, v);
-            }
-
-            closedSet.add(v);
-            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
-                u = e.getV(v);
-                newScore = vweighter.weight(v.getLabel())
-                    + eweighter.weight(e.getLabel());
-                curScore = vweighter.weight(u.getLabel());
-                if (closedSet.contains(u)
-                        && Double.compare(newScore, curScore) >= 0) {
-                    continue;
-                }
-
-                if (!openSet.contains(u)
-                        || Double.compare(newScore, curScore) < 0) {
-                    vertEdgeMap.put(u, e);
-                    openSet.remove(u);
-                    vweighter.setWeight(u.getLabel(), newScore);
-                    openSet.add(u);
-                }
-            }
-        }
-
-        return null;
     }
 
     /** Returns a path from V0 to V1 in G of minimum weight, according
@@ -111,8 +65,8 @@ public final class Graphs {
      *  shortestPath, but uses the .weight and .setWeight methods of
      *  the edges and vertices themselves to determine and set
      *  weights. If V1 is unreachable from V0, returns null and sets
-     *  the minimum path weights of all reachable nodes.  The distance
-     *  to a node unreachable from V0 is Double.POSITIVE_INFINITY. */
+     *  the minimum path weights of all reachable nodes.  The weights
+     *  of vertices the search never reaches are left unchanged. */
     public static
     <VLabel extends Weightable, ELabel extends Weighted>
     List<Graph<VLabel, ELabel>.Edge>
@@ -120,46 +74,234 @@ public final class Graphs {
                  Graph<VLabel, ELabel>.Vertex V0,
                  Graph<VLabel, ELabel>.Vertex V1,
                  Distancer<? super VLabel> h) {
-        Set<Graph<VLabel, ELabel>.Vertex> closedSet =
-            new HashSet<Graph<VLabel, ELabel>.Vertex>();
-        TreeSet<Graph<VLabel, ELabel>.Vertex> openSet =
-            new TreeSet<Graph<VLabel, ELabel>.Vertex>
-            (new WeightableVertexWeightOrderComparator<VLabel, ELabel>(h, V1));
-        Map<Graph<VLabel, ELabel>.Vertex,
-            Graph<VLabel, ELabel>.Edge> vertEdgeMap =
-            new HashMap<Graph<VLabel, ELabel>.Vertex,
-                Graph<VLabel, ELabel>.Edge>();
-
-        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
-            v.getLabel().setWeight(Double.POSITIVE_INFINITY);
+        return shortestPath(G, V0, V1, h, LABEL_WEIGHTER, LABEL_WEIGHTING);
+    }
+
+    /** Returns a path from V0 to V1 in G of minimum weight according to
+     *  the edge weighting EWEIGHTER, or null if there is none.  Searches
+     *  forward from V0 and backward from V1 at once (along predecessor
+     *  edges if G is directed), which on long paths settles far fewer
+     *  vertices than shortestPath.  H must satisfy the conditions required
+     *  by shortestPath, and in addition H.dist(V0, v) must be at most the
+     *  weight of a minimal path from V0 to v.  Graphs.ZERO_DISTANCER gives
+     *  a bidirectional Dijkstra search.  Vertex labels are not modified.
+     *  When several paths have minimum weight, the one returned may differ
+     *  from that returned by shortestPath.  VLABEL and ELABEL are the types
+     *  of vertex and edge labels. */
+    public static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel> G,
+                              Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h,
+                              Weighting<? super ELabel> eweighter) {
+        SearchState<VLabel, ELabel> state = takeState(G);
+        try {
+            return bidirectionalAStar(G, V0, V1, h, eweighter, state);
+        } finally {
+            releaseState(state);
         }
-        V0.getLabel().setWeight(0);
-        openSet.add(V0);
+    }
 
-        Graph<VLabel, ELabel>.Vertex v, u;
-        Double newScore, curScore;
-        while (!openSet.isEmpty()) {
-            v = openSet.pollFirst();
-            if (v == V1) {
-                return reconstructPath(vertEdgeMap, v);
+    /** Returns the tree of minimal paths in G from SOURCE to every vertex,
+     *  according to the edge weighting EWEIGHTER.  Runs a single Dijkstra
+     *  search to completion; afterwards the distance and path to any
+     *  vertex can be read from the result without further searching.
+     *  Vertex labels are not modified.  VLABEL and ELABEL are the types of
+     *  vertex and edge labels. */
+    public static <VLabel, ELabel> ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source,
+                     Weighting<? super ELabel> eweighter) {
+        SearchState<VLabel, ELabel> state = takeState(G);
+        try {
+            return shortestPathTree(G, source, eweighter, state);
+        } finally {
+            releaseState(state);
+        }
+    }
+
+    /** Returns shortestPathTree(G, SOURCE, eweighter) where eweighter takes
+     *  the weights of edges from their labels.  VLABEL and ELABEL are the
+     *  types of vertex and edge labels. */
+    public static <VLabel, ELabel extends Weighted>
+    ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source) {
+        return shortestPathTree(G, source, LABEL_WEIGHTING);
+    }
+
+    /** Returns a matrix whose element [i][j] is the weight of a minimal path
+     *  in G from SOURCES.get(i) to TARGETS.get(j), according to the edge
+     *  weighting EWEIGHTER, or Double.POSITIVE_INFINITY if there is no such
+     *  path.  Runs one Dijkstra search per source, each stopping as soon as
+     *  all targets are settled, spread across the common ForkJoinPool.
+     *  EWEIGHTER may be called from several threads at once, and G must not
+     *  be modified during the call.  Vertex labels are not modified.  (For
+     *  graphs with a ContractionHierarchy, its distanceMatrix method is
+     *  usually much faster.)  VLABEL and ELABEL are the types of vertex and
+     *  edge labels. */
+    public static <VLabel, ELabel> double[][]
+    distanceMatrix(final Graph<VLabel, ELabel> G,
+                   List<Graph<VLabel, ELabel>.Vertex> sources,
+                   List<Graph<VLabel, ELabel>.Vertex> targets,
+                   final Weighting<? super ELabel> eweighter) {
+        final int bound = G.vertexIdBound();
+        final int[] column = new int[bound];
+        final int[] nextColumn = new int[targets.size()];
+        Arrays.fill(column, -1);
+        int distinct = 0;
+        for (int j = targets.size() - 1; j >= 0; j -= 1) {
+            int id = targets.get(j).id();
+            if (column[id] == -1) {
+                distinct += 1;
             }
+            nextColumn[j] = column[id];
+            column[id] = j;
+        }
 
-            closedSet.add(v);
-            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
-                u = e.getV(v);
-                newScore = v.getLabel().weight() + e.getLabel().weight();
-                curScore = u.getLabel().weight();
-                if (closedSet.contains(u)
-                        && Double.compare(newScore, curScore) >= 0) {
-                    continue;
+        final int distinctTargets = distinct;
+        final List<Graph<VLabel, ELabel>.Vertex> sourceList =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(sources);
+        final double[][] result = new double[sourceList.size()][];
+        final ThreadLocal<SearchState<VLabel, ELabel>> states =
+            new ThreadLocal<SearchState<VLabel, ELabel>>() {
+                @Override
+                protected SearchState<VLabel, ELabel> initialValue() {
+                    return new SearchState<VLabel, ELabel>(bound);
                 }
+            };
+        new ParallelFor() {
+            @Override
+            void apply(int i) {
+                result[i] = new double[nextColumn.length];
+                Arrays.fill(result[i], Double.POSITIVE_INFINITY);
+                oneToMany(G, sourceList.get(i), eweighter, column, nextColumn,
+                          distinctTargets, result[i], states.get());
+            }
+        }.run(sourceList.size());
+        return result;
+    }
+
+    /* Breadth-First Search */
+
+    /** Returns the levels of the vertices of G in a breadth-first search
+     *  from SOURCE: the number of edges on a shortest path to each, and the
+     *  last edge of one such path.  The search is run in parallel across
+     *  the common ForkJoinPool, switching between top-down and bottom-up
+     *  expansion of each level according to the size of the frontier.
+     *  G must not be modified during the call.  VLABEL and ELABEL are the
+     *  types of vertex and edge labels. */
+    public static <VLabel, ELabel> BreadthFirstLevels<VLabel, ELabel>
+    breadthFirstLevels(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex source) {
+        return new BreadthFirstLevels<VLabel, ELabel>(G, source, null);
+    }
+
+    /** As for breadthFirstLevels(G, SOURCE), but also reports each vertex
+     *  reached, with its level, to VISITOR, which may be called from
+     *  several threads at once.  VLABEL and ELABEL are the types of vertex
+     *  and edge labels. */
+    public static <VLabel, ELabel> BreadthFirstLevels<VLabel, ELabel>
+    breadthFirstLevels(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex source,
+                       LevelVisitor<VLabel, ELabel> visitor) {
+        return new BreadthFirstLevels<VLabel, ELabel>(G, source, visitor);
+    }
+
+    /* Bulk Editing */
+
+    /** Removes from G all of EDGES that are in G.  Takes time proportional
+     *  to the number of EDGES, plus the degrees of those of their ends that
+     *  lose a large fraction of their edges, which is much less than
+     *  removing the edges one at a time when many share an end.  VLABEL
+     *  and ELABEL are the types of vertex and edge labels. */
+    public static <VLabel, ELabel> void
+    removeAll(Graph<VLabel, ELabel> G,
+              Collection<? extends Graph<VLabel, ELabel>.Edge> edges) {
+        G.removeAll(edges);
+    }
+
+    /* Primitive Graphs */
+
+    /** Returns the edges of a path of minimum weight from V0 to V1 in G, in
+     *  order, or null if V1 is unreachable from V0.  Edge e has weight
+     *  WEIGHTS[e], which must be non-negative. */
+    public static int[] shortestPath(IntGraph G, int V0, int V1,
+                                     double[] weights) {
+        return path(G, V0, V1, weights, null);
+    }
 
-                if (!openSet.contains(u)
-                        || Double.compare(newScore, curScore) < 0) {
-                    vertEdgeMap.put(u, e);
-                    openSet.remove(u);
-                    u.getLabel().setWeight(newScore);
-                    openSet.add(u);
+    /** Returns the edges of a path of minimum weight from V0 to V1 in G, in
+     *  order, or null if V1 is unreachable from V0.  Edge e has weight
+     *  WEIGHTS[e], which must be non-negative.  Path weights are summed in
+     *  double precision. */
+    public static int[] shortestPath(IntGraph G, int V0, int V1,
+                                     float[] weights) {
+        return path(G, V0, V1, null, weights);
+    }
+
+    /** Returns the weight of a minimal path in G from SOURCE to each vertex,
+     *  or Double.POSITIVE_INFINITY for vertices unreachable from SOURCE.
+     *  Edge e has weight WEIGHTS[e], which must be non-negative. */
+    public static double[] distances(IntGraph G, int source,
+                                     double[] weights) {
+        double[] dist = new double[G.vertexSize()];
+        dijkstra(G, source, -1, weights, null, dist, null);
+        return dist;
+    }
+
+    /** Returns the weight of a minimal path in G from SOURCE to each vertex,
+     *  or Double.POSITIVE_INFINITY for vertices unreachable from SOURCE.
+     *  Edge e has weight WEIGHTS[e], which must be non-negative. */
+    public static double[] distances(IntGraph G, int source,
+                                     float[] weights) {
+        double[] dist = new double[G.vertexSize()];
+        dijkstra(G, source, -1, null, weights, dist, null);
+        return dist;
+    }
+
+    /** Performs an A* search for a path of minimum weight from V0 to V1 in
+     *  G, using the edge weighting EWEIGHTER, the distance estimate H, and
+     *  STATE for bookkeeping.  Returns the path, or null if V1 is unreachable
+     *  from V0.  Unless VWEIGHTER is null, uses it to set the weight of each
+     *  vertex to its final distance from V0 when the vertex is closed; no
+     *  other vertex labels are touched.  VLABEL and ELABEL are the types of
+     *  vertex and edge labels. */
+    static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    aStar(Graph<VLabel, ELabel> G,
+          Graph<VLabel, ELabel>.Vertex V0,
+          Graph<VLabel, ELabel>.Vertex V1,
+          Distancer<? super VLabel> h,
+          Weighter<? super VLabel> vweighter,
+          Weighting<? super ELabel> eweighter,
+          SearchState<VLabel, ELabel> state) {
+        VLabel end = V1.getLabel();
+        state.start(G.vertexIdBound());
+        state.open(V0, 0, null, h.dist(V0.getLabel(), end));
+
+        EdgeCursor<VLabel, ELabel> cursor = state.cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        double dist, newScore;
+        while (!state.isOpenEmpty()) {
+            v = state.vertex(state.close());
+            dist = state.dist(v.id());
+            if (vweighter != null) {
+                vweighter.setWeight(v.getLabel(), dist);
+            }
+            if (v == V1) {
+                return state.pathTo(v);
+            }
+
+            cursor.outEdges(v);
+            while (cursor.hasNext()) {
+                cursor.next();
+                e = cursor.edge();
+                u = cursor.target();
+                newScore = dist + G.weight(e, eweighter);
+                if (newScore < state.dist(u.id())) {
+                    state.open(u, newScore, e,
+                               newScore + h.dist(u.getLabel(), end));
                 }
             }
         }
@@ -167,88 +309,332 @@ public final class Graphs {
         return null;
     }
 
-    /** Reconstructs the path from LASTVERTEX to the beginning of an A*
-     *  traversal, as defined by VERTEDGEMAP. Returns the path in a List.
-     *  VLABEL is the type of vertex labels, and ELABEL is the type of
-     *  edge labels. */
-    private static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
-    reconstructPath(
-            Map<Graph<VLabel, ELabel>.Vertex,
-                Graph<VLabel, ELabel>.Edge> vertEdgeMap,
-            Graph<VLabel, ELabel>.Vertex lastVertex) {
-        if (lastVertex == null) {
-            return null;
-        }
+    /** Performs a bidirectional A* search for a path of minimum weight from
+     *  V0 to V1 in G, using the edge weighting EWEIGHTER and the distance
+     *  estimate H, as described for bidirectionalShortestPath.  STATE and
+     *  its partner hold the forward and backward searches.  Returns the
+     *  path, or null if there is none.  VLABEL and ELABEL are the types of
+     *  vertex and edge labels.
+     *
+     *  Both searches use the average potential
+     *       p(v) = (H.dist(v, V1) - H.dist(V0, v)) / 2,
+     *  the forward search ordering its open set by distance + p(v) and the
+     *  backward search by distance - p(v).  Once the two least priorities
+     *  sum to at least the weight of the best path seen so far, no better
+     *  path remains.  Each step advances whichever search has the smaller
+     *  open set. */
+    static <VLabel, ELabel> List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalAStar(Graph<VLabel, ELabel> G,
+                       Graph<VLabel, ELabel>.Vertex V0,
+                       Graph<VLabel, ELabel>.Vertex V1,
+                       Distancer<? super VLabel> h,
+                       Weighting<? super ELabel> eweighter,
+                       SearchState<VLabel, ELabel> state) {
+        SearchState<VLabel, ELabel> fwd = state, bwd = state.partner();
+        VLabel start = V0.getLabel(), end = V1.getLabel();
+        fwd.start(G.vertexIdBound());
+        bwd.start(G.vertexIdBound());
+        fwd.open(V0, 0, null, potential(h, start, end, start));
+        bwd.open(V1, 0, null, -potential(h, start, end, end));
+
+        double best = V0 == V1 ? 0 : Double.POSITIVE_INFINITY;
+        Graph<VLabel, ELabel>.Vertex meet = V0 == V1 ? V0 : null;
+        SearchState<VLabel, ELabel> cur, other;
+        EdgeCursor<VLabel, ELabel> cursor = fwd.cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        double dist, newScore, sign;
+        boolean forward;
+        while (!fwd.isOpenEmpty() && !bwd.isOpenEmpty()
+               && fwd.minKey() + bwd.minKey() < best) {
+            forward = fwd.openSize() <= bwd.openSize();
+            cur = forward ? fwd : bwd;
+            other = forward ? bwd : fwd;
+            sign = forward ? 1 : -1;
+            v = cur.vertex(cur.close());
+            dist = cur.dist(v.id());
 
-        Graph<VLabel, ELabel>.Edge edge = vertEdgeMap.get(lastVertex);
-        LinkedList<Graph<VLabel, ELabel>.Edge> path =
-            new LinkedList<Graph<VLabel, ELabel>.Edge>();
-        while (edge != null) {
-            path.addFirst(edge);
-            lastVertex = edge.getV(lastVertex);
-            edge = vertEdgeMap.get(lastVertex);
+            edges(cursor, v, !forward);
+            while (cursor.hasNext()) {
+                cursor.next();
+                e = cursor.edge();
+                u = cursor.target();
+                newScore = dist + G.weight(e, eweighter);
+                if (newScore < cur.dist(u.id())) {
+                    cur.open(u, newScore, e, newScore
+                             + sign * potential(h, start, end, u.getLabel()));
+                }
+                if (other.isReached(u.id())
+                    && cur.dist(u.id()) + other.dist(u.id()) < best) {
+                    best = cur.dist(u.id()) + other.dist(u.id());
+                    meet = u;
+                }
+            }
         }
 
+        if (meet == null) {
+            return null;
+        }
+        List<Graph<VLabel, ELabel>.Edge> path = fwd.pathTo(meet);
+        for (e = bwd.parent(meet.id()); e != null; e = bwd.parent(meet.id())) {
+            path.add(e);
+            meet = e.getV(meet);
+        }
         return path;
     }
 
-    /** Comparator that order Vertices by weight order. */
-    private static class GenericVertexWeightOrderComparator<VLabel, ELabel>
-        implements Comparator<Graph<VLabel, ELabel>.Vertex> {
-
-        /** Default constructor. Takes in a Distancer H, an ending
-         *  vertex END, and a VLabel Weighter VWEIGHTER. */
-        GenericVertexWeightOrderComparator(Distancer<? super VLabel> h,
-            Graph<VLabel, ELabel>.Vertex end,
-            Weighter<? super VLabel> vweighter) {
-            _h = h;
-            _end = end;
-            _vweighter = vweighter;
+    /** Runs Dijkstra's algorithm from SOURCE in G to completion, using the
+     *  edge weighting EWEIGHTER and STATE for bookkeeping.  If REVERSE,
+     *  follows edges backward (in a directed graph), so that STATE ends up
+     *  holding distances to SOURCE rather than from it.  Afterwards,
+     *  STATE.dist(v.id()) is the distance for every vertex v, and
+     *  STATE.parent(v.id()) the last edge of a minimal path.  VLABEL and
+     *  ELABEL are the types of vertex and edge labels. */
+    static <VLabel, ELabel> void
+    dijkstra(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex source,
+             Weighting<? super ELabel> eweighter, boolean reverse,
+             SearchState<VLabel, ELabel> state) {
+        state.start(G.vertexIdBound());
+        state.open(source, 0, null, 0);
+
+        EdgeCursor<VLabel, ELabel> cursor = state.cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        double dist, newScore;
+        while (!state.isOpenEmpty()) {
+            v = state.vertex(state.close());
+            dist = state.dist(v.id());
+            edges(cursor, v, reverse);
+            while (cursor.hasNext()) {
+                cursor.next();
+                e = cursor.edge();
+                u = cursor.target();
+                newScore = dist + G.weight(e, eweighter);
+                if (newScore < state.dist(u.id())) {
+                    state.open(u, newScore, e, newScore);
+                }
+            }
         }
+    }
 
-        @Override
-        public int compare(Graph<VLabel, ELabel>.Vertex v0,
-                Graph<VLabel, ELabel>.Vertex v1) {
-            Double v0Weight = getVertexWeight(v0)
-                + _h.dist(v0.getLabel(), _end.getLabel());
-            Double v1Weight = getVertexWeight(v1)
-                + _h.dist(v1.getLabel(), _end.getLabel());
+    /** Returns a checksum of the vertex ids of G and the ends and weights
+     *  (according to EWEIGHTER) of its edges, for recognizing data saved
+     *  from a graph that has since changed.  VLABEL and ELABEL are the types
+     *  of vertex and edge labels. */
+    static <VLabel, ELabel> long
+    checksum(Graph<VLabel, ELabel> G, Weighting<? super ELabel> eweighter) {
+        int bound = G.vertexIdBound();
+        long result = mix(0, bound);
+        for (int id = 0; id < bound; id += 1) {
+            Graph<VLabel, ELabel>.Vertex v = G.vertex(id);
+            if (v == null) {
+                continue;
+            }
+            result = mix(result, id);
+            for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
+                result = mix(result, e.getV(v).id());
+                result = mix(result, Double.doubleToLongBits(
+                    G.weight(e, eweighter)));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the combination of the checksum H with X. */
+    private static long mix(long h, long x) {
+        return Long.rotateLeft((h ^ x) * 0x9E3779B97F4A7C15L, 29);
+    }
 
-            return Double.compare(v0Weight, v1Weight);
+    /** Returns the tree of minimal paths in G from SOURCE according to
+     *  EWEIGHTER, using STATE for bookkeeping.  VLABEL and ELABEL are the
+     *  types of vertex and edge labels. */
+    static <VLabel, ELabel> ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source,
+                     Weighting<? super ELabel> eweighter,
+                     SearchState<VLabel, ELabel> state) {
+        dijkstra(G, source, eweighter, false, state);
+        return new ShortestPathTree<VLabel, ELabel>(G, source, state);
+    }
+
+    /** Runs Dijkstra's algorithm from SOURCE in G, using the edge weighting
+     *  EWEIGHTER and STATE for bookkeeping, until REMAINING distinct target
+     *  vertices have been settled.  The targets are given by COLUMN, which
+     *  maps each vertex id to the first index of that vertex among the
+     *  targets (or -1), and NEXTCOLUMN, which maps each target index to the
+     *  next index of the same vertex (or -1).  Sets ROW[j] to the distance
+     *  to the target with index j, for each target reached.  VLABEL and
+     *  ELABEL are the types of vertex and edge labels. */
+    private static <VLabel, ELabel> void
+    oneToMany(Graph<VLabel, ELabel> G, Graph<VLabel, ELabel>.Vertex source,
+              Weighting<? super ELabel> eweighter, int[] column,
+              int[] nextColumn, int remaining, double[] row,
+              SearchState<VLabel, ELabel> state) {
+        state.start(G.vertexIdBound());
+        state.open(source, 0, null, 0);
+
+        EdgeCursor<VLabel, ELabel> cursor = state.cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        double dist, newScore;
+        while (remaining > 0 && !state.isOpenEmpty()) {
+            v = state.vertex(state.close());
+            dist = state.dist(v.id());
+            if (column[v.id()] != -1) {
+                for (int j = column[v.id()]; j != -1; j = nextColumn[j]) {
+                    row[j] = dist;
+                }
+                remaining -= 1;
+            }
+            cursor.outEdges(v);
+            while (cursor.hasNext()) {
+                cursor.next();
+                e = cursor.edge();
+                u = cursor.target();
+                newScore = dist + G.weight(e, eweighter);
+                if (newScore < state.dist(u.id())) {
+                    state.open(u, newScore, e, newScore);
+                }
+            }
         }
+    }
 
-        /** Returns the weight of Vertex V. */
-        protected Double getVertexWeight(Graph<VLabel, ELabel>.Vertex v) {
-            return _vweighter.weight(v.getLabel());
+    /** Positions CURSOR at the edges leaving V, or, if REVERSE, the edges
+     *  entering V.  (In an undirected graph, these are the same.) */
+    private static <VLabel, ELabel> void
+    edges(EdgeCursor<VLabel, ELabel> cursor, Graph<VLabel, ELabel>.Vertex v,
+          boolean reverse) {
+        if (reverse && cursor.graph().isDirected()) {
+            cursor.inEdges(v);
+        } else {
+            cursor.outEdges(v);
         }
+    }
 
-        /** Ending vertex. Used to measure distance. */
-        private final Graph<VLabel, ELabel>.Vertex _end;
-        /** Measures distances between vertices. */
-        private final Distancer<? super VLabel> _h;
-        /** Weights vertices. */
-        private final Weighter<? super VLabel> _vweighter;
+    /** Returns the edges of a path of minimum weight from V0 to V1 in G,
+     *  or null if there is none, where edge e weighs DWEIGHTS[e] or, if
+     *  DWEIGHTS is null, FWEIGHTS[e]. */
+    private static int[] path(IntGraph G, int V0, int V1, double[] dweights,
+                              float[] fweights) {
+        double[] dist = new double[G.vertexSize()];
+        int[] parent = new int[G.vertexSize()];
+        dijkstra(G, V0, V1, dweights, fweights, dist, parent);
+        if (dist[V1] == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        int length = 0;
+        for (int v = V1; v != V0; v = G.other(parent[v], v)) {
+            length += 1;
+        }
+        int[] path = new int[length];
+        for (int v = V1; v != V0; v = G.other(parent[v], v)) {
+            length -= 1;
+            path[length] = parent[v];
+        }
+        return path;
     }
 
-    /** Comparator that orders Vertices by weight order. Vertices must
-     *  implement Weightable. */
-    private static class WeightableVertexWeightOrderComparator
-        <VLabel extends Weightable, ELabel extends Weighted>
-        extends GenericVertexWeightOrderComparator<VLabel, ELabel> {
-
-        /** Default constructor. Takes in a Distancer H and an ending
-         *  vertex END. */
-        WeightableVertexWeightOrderComparator(Distancer<? super VLabel> h,
-            Graph<VLabel, ELabel>.Vertex end) {
-            super(h, end, null);
+    /** Runs Dijkstra's algorithm in G from SOURCE, stopping once TARGET is
+     *  settled (never, if TARGET is -1), where edge e weighs DWEIGHTS[e]
+     *  or, if DWEIGHTS is null, FWEIGHTS[e].  Sets DIST[v] to the distance
+     *  of each settled vertex v, to at least that for other reached
+     *  vertices, and to Double.POSITIVE_INFINITY for the rest.  Unless
+     *  PARENT is null, sets PARENT[v] to the last edge of the path found to
+     *  each reached vertex v other than SOURCE. */
+    private static void dijkstra(IntGraph G, int source, int target,
+                                 double[] dweights, float[] fweights,
+                                 double[] dist, int[] parent) {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        IndexedHeap open = new IndexedHeap(G.vertexSize());
+        dist[source] = 0;
+        open.put(source, 0);
+        int v, u, e;
+        double newScore;
+        while (!open.isEmpty()) {
+            v = open.poll();
+            if (v == target) {
+                return;
+            }
+            for (int k = G.outDegree(v) - 1; k >= 0; k -= 1) {
+                e = G.outEdge(v, k);
+                u = G.other(e, v);
+                newScore = dist[v]
+                    + (dweights != null ? dweights[e] : fweights[e]);
+                if (newScore < dist[u]) {
+                    dist[u] = newScore;
+                    if (parent != null) {
+                        parent[u] = e;
+                    }
+                    open.put(u, newScore);
+                }
+            }
         }
+    }
 
-        @Override
-        protected Double getVertexWeight(Graph<VLabel, ELabel>.Vertex v) {
-            return v.getLabel().weight();
+    /** Returns a search state for a search of G, private to the calling
+     *  thread: the one the thread last released, if it is not already in
+     *  use by an enclosing search, and otherwise a new one.  A reused state
+     *  may have been sized for a smaller graph; it grows to fit G when the
+     *  search starts it. */
+    @SuppressWarnings("unchecked")
+    private static <VLabel, ELabel> SearchState<VLabel, ELabel>
+    takeState(Graph<VLabel, ELabel> G) {
+        SearchState<?, ?> state = STATES.get();
+        if (state == null) {
+            return new SearchState<VLabel, ELabel>(G.vertexIdBound());
         }
+        STATES.set(null);
+        return (SearchState<VLabel, ELabel>) state;
+    }
+
+    /** Makes STATE, which the calling thread got from takeState, available
+     *  to its next search, after dropping its references to the graph it
+     *  searched. */
+    private static void releaseState(SearchState<?, ?> state) {
+        state.clear();
+        STATES.set(state);
     }
 
+    /** Returns the forward potential of the vertex labeled V for a
+     *  bidirectional search from START to END using the estimate H. */
+    private static <VLabel> double potential(Distancer<? super VLabel> h,
+                                             VLabel start, VLabel end,
+                                             VLabel v) {
+        return (h.dist(v, end) - h.dist(start, v)) / 2;
+    }
+
+    /** The search state each thread reuses across the searches it makes
+     *  through the public methods above, or null while it is in use.  A
+     *  state is epoch-stamped, so reusing it costs nothing in proportion
+     *  to the size of the graph.  Released states hold no references to
+     *  the graphs searched, but keep arrays as large as the largest graph
+     *  the thread has searched. */
+    private static final ThreadLocal<SearchState<?, ?>> STATES =
+        new ThreadLocal<SearchState<?, ?>>();
+
+    /** Reads and sets the weights of Weightable labels directly. */
+    private static final Weighter<Weightable> LABEL_WEIGHTER =
+        new Weighter<Weightable>() {
+            @Override
+            public double weight(Weightable x) {
+                return x.weight();
+            }
+
+            @Override
+            public void setWeight(Weightable x, double v) {
+                x.setWeight(v);
+            }
+        };
+
+    /** Reads the weights of Weighted labels directly. */
+    private static final Weighting<Weighted> LABEL_WEIGHTING =
+        new Weighting<Weighted>() {
+            @Override
+            public double weight(Weighted x) {
+                return x.weight();
+            }
+        };
+
     /** Returns a distancer whose dist method always returns 0. */
     public static final Distancer<Object> ZERO_DISTANCER =
         new Distancer<Object>() {
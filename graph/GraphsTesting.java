@@ -3,12 +3,25 @@ package graph;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import java.util.Map;
 import java.util.HashMap;
 
 import java.util.Arrays;
+import java.util.Random;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Unit tests for the Graphs.java (A* Traversal).
  *  @author Aleks Kamko
@@ -255,6 +268,862 @@ public class GraphsTesting {
         assertArrayEquals("incorrect: A*", compare.toArray(), path.toArray());
     }
 
+    @Test
+    public void shortestPathEqualScores() {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        Graph<WeightablePlace, WeightedPath>.Vertex vA, vB, vC, vD;
+        vA = g.add(new WeightablePlace("A", 0, 0));
+        vB = g.add(new WeightablePlace("B", 0, 1));
+        vC = g.add(new WeightablePlace("C", 1, 0));
+        vD = g.add(new WeightablePlace("D", 1, 1));
+        Graph<WeightablePlace, WeightedPath>.Edge eAB, eAC, eCD;
+        eAB = g.add(vA, vB, new WeightedPath("AB", 1));
+        eAC = g.add(vA, vC, new WeightedPath("AC", 1));
+        eCD = g.add(vC, vD, new WeightedPath("CD", 1));
+
+        List<Graph<WeightablePlace, WeightedPath>.Edge> path =
+            Graphs.<WeightablePlace, WeightedPath>
+            shortestPath(g, vA, vD, Graphs.ZERO_DISTANCER);
+        List<Graph<WeightablePlace, WeightedPath>.Edge> compare =
+            Arrays.asList(eAC, eCD);
+        assertArrayEquals("incorrect: A*", compare.toArray(), path.toArray());
+    }
+
+    @Test
+    public void shortestPathEngineConcurrent() throws InterruptedException {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        final Graph<WeightablePlace, WeightedPath>.Vertex vA, vC, vG, vI, vF;
+        vA = g.add(new WeightablePlace("A", 3, 6));
+        vC = g.add(new WeightablePlace("C", 8, 5));
+        vG = g.add(new WeightablePlace("G", 10, 7));
+        vI = g.add(new WeightablePlace("I", 8, 15));
+        vF = g.add(new WeightablePlace("F", 13, 3));
+        Graph<WeightablePlace, WeightedPath>.Edge eAC, eCG, eGF;
+        eAC = addDistancedPath(g, _H, vA, vC, "AC");
+        eCG = addDistancedPath(g, _H, vC, vG, "CG");
+        eGF = addDistancedPath(g, _H, vG, vF, "GF");
+        addDistancedPath(g, _H, vG, vI, "GI");
+        addDistancedPath(g, _H, vI, vF, "IF");
+        addDistancedPath(g, _H, vA, vI, "AI");
+        final List<Graph<WeightablePlace, WeightedPath>.Edge> expected =
+            Arrays.asList(eAC, eCG, eGF);
+        assertEquals("incorrect: A*", expected,
+            Graphs.<WeightablePlace, WeightedPath>shortestPath(g, vA, vF, _H));
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v : g.vertices()) {
+            v.getLabel().setWeight(-1);
+        }
+
+        final ShortestPathEngine<WeightablePlace, WeightedPath> engine =
+            new ShortestPathEngine<WeightablePlace, WeightedPath>(g,
+                                                            PATH_WEIGHTING);
+        final boolean[] ok = new boolean[4];
+        Thread[] threads = new Thread[ok.length];
+        for (int i = 0; i < threads.length; i += 1) {
+            final int k = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    boolean same = true;
+                    for (int n = 0; n < 1000; n += 1) {
+                        same &= expected.equals(
+                            engine.shortestPath(vA, vF, _H));
+                        same &= engine.shortestPath(vF, vA, _H) == null;
+                    }
+                    ok[k] = same;
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        for (int i = 0; i < ok.length; i += 1) {
+            assertTrue("incorrect: ShortestPathEngine", ok[i]);
+        }
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v : g.vertices()) {
+            assertEquals("ShortestPathEngine modified a label",
+                         -1.0, v.getLabel().weight(), 0.0);
+        }
+    }
+
+    @Test
+    public void searchStateClear() {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 20, 40, 29);
+        SearchState<WeightablePlace, WeightedPath> state =
+            new SearchState<WeightablePlace, WeightedPath>(4);
+        state.start(g.vertexIdBound());
+        Graph<WeightablePlace, WeightedPath>.Edge e = g.edges().next();
+        state.open(e.getV0(), 0, null, 0);
+        state.open(e.getV1(), 1, e, 1);
+        state.partner().start(g.vertexIdBound());
+        state.partner().open(verts.get(19), 0, null, 0);
+        assertTrue("wrong parent", state.parent(e.getV1().id()) == e);
+        state.clear();
+        assertTrue("cleared state should forget its vertices",
+                   state.vertex(e.getV0().id()) == null
+                   && state.vertex(e.getV1().id()) == null
+                   && state.partner().vertex(verts.get(19).id()) == null);
+        assertTrue("cleared state should forget its search",
+                   !state.isReached(e.getV1().id())
+                   && state.isOpenEmpty());
+    }
+
+    @Test
+    public void graphsSearchesConcurrent() throws InterruptedException {
+        final DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        final List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 300, 1200, 83);
+        final double[] expected = new double[verts.size()];
+        for (int i = 0; i < expected.length; i += 1) {
+            expected[i] = pathWeight(Graphs.bidirectionalShortestPath(g,
+                verts.get(0), verts.get(i), _H, PATH_WEIGHTING));
+        }
+        final AtomicInteger wrong = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i += 1) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 20; n += 1) {
+                        ShortestPathTree<WeightablePlace, WeightedPath> tree =
+                            Graphs.shortestPathTree(g, verts.get(0),
+                                                    PATH_WEIGHTING);
+                        for (int j = 0; j < expected.length; j += 1) {
+                            Graph<WeightablePlace, WeightedPath>.Vertex v =
+                                verts.get(j);
+                            double w = pathWeight(
+                                Graphs.bidirectionalShortestPath(g,
+                                    verts.get(0), v, _H, PATH_WEIGHTING));
+                            if (Math.abs(w - expected[j]) > 1e-9
+                                || Math.abs(pathWeight(tree.pathTo(v))
+                                            - expected[j]) > 1e-9) {
+                                wrong.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals("incorrect: concurrent searches", 0, wrong.get());
+    }
+
+    @Test
+    public void bidirectionalShortestPath() {
+        checkBidirectional(new DirectedGraph<WeightablePlace, WeightedPath>());
+        checkBidirectional(
+            new UndirectedGraph<WeightablePlace, WeightedPath>());
+    }
+
+    /** Fills G with a pseudo-random map and checks that bidirectional
+     *  searches find paths of the same weight as A* between all pairs of
+     *  its vertices. */
+    private void checkBidirectional(
+            Graph<WeightablePlace, WeightedPath> g) {
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 40, 100, 61);
+
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                List<Graph<WeightablePlace, WeightedPath>.Edge> expected =
+                    Graphs.<WeightablePlace, WeightedPath>
+                    shortestPath(g, v0, v1, _H);
+                assertEquals("incorrect: bidirectional A*",
+                    pathWeight(expected), pathWeight(
+                        Graphs.bidirectionalShortestPath(g, v0, v1, _H,
+                                                         PATH_WEIGHTING)),
+                    1e-9);
+                assertEquals("incorrect: bidirectional Dijkstra",
+                    pathWeight(expected), pathWeight(
+                        Graphs.bidirectionalShortestPath(g, v0, v1,
+                            Graphs.ZERO_DISTANCER, PATH_WEIGHTING)),
+                    1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void contractionHierarchy() throws IOException {
+        checkHierarchy(new DirectedGraph<WeightablePlace, WeightedPath>());
+        checkHierarchy(new UndirectedGraph<WeightablePlace, WeightedPath>());
+    }
+
+    /** Fills G with a pseudo-random map and checks that a contraction
+     *  hierarchy of it, and a copy of the hierarchy written and read back,
+     *  find connected paths of the same weight as A* between all pairs of
+     *  its vertices. */
+    private void checkHierarchy(Graph<WeightablePlace, WeightedPath> g)
+        throws IOException {
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 60, 150, 62);
+        ContractionHierarchy<WeightablePlace, WeightedPath> ch =
+            new ContractionHierarchy<WeightablePlace, WeightedPath>(g,
+                PATH_WEIGHTING);
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        ch.write(saved);
+        ContractionHierarchy<WeightablePlace, WeightedPath> copy =
+            ContractionHierarchy.read(
+                new ByteArrayInputStream(saved.toByteArray()), g,
+                PATH_WEIGHTING);
+        try {
+            ContractionHierarchy.read(
+                new ByteArrayInputStream(saved.toByteArray()), g,
+                EDITED_WEIGHTING);
+            fail("hierarchy read with stale weights");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+        byte[] corrupt = saved.toByteArray();
+        Arrays.fill(corrupt, corrupt.length - 40, corrupt.length - 20,
+                    (byte) 0x7f);
+        try {
+            ContractionHierarchy.read(new ByteArrayInputStream(corrupt), g,
+                                      PATH_WEIGHTING);
+            fail("corrupt hierarchy read");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                double expected = pathWeight(
+                    Graphs.<WeightablePlace, WeightedPath>
+                    shortestPath(g, v0, v1, _H));
+                for (ContractionHierarchy<WeightablePlace, WeightedPath> h
+                         : Arrays.asList(ch, copy)) {
+                    List<Graph<WeightablePlace, WeightedPath>.Edge> path =
+                        h.shortestPath(v0, v1);
+                    assertEquals("incorrect: contraction hierarchy",
+                                 expected, pathWeight(path), 1e-9);
+                    if (path != null) {
+                        Graph<WeightablePlace, WeightedPath>.Vertex v = v0;
+                        for (Graph<WeightablePlace, WeightedPath>.Edge e
+                                 : path) {
+                            v = e.getV(v);
+                        }
+                        assertTrue("disconnected path", v == v1);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void landmarkDistancer() throws IOException {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 60, 200, 63);
+        Landmarks<WeightablePlace, WeightedPath> alt =
+            new Landmarks<WeightablePlace, WeightedPath>(g, PATH_WEIGHTING, 4);
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        alt.write(saved);
+        Landmarks<WeightablePlace, WeightedPath> copy =
+            Landmarks.read(new ByteArrayInputStream(saved.toByteArray()), g,
+                           PATH_WEIGHTING);
+        assertEquals("wrong number of landmarks", 4, copy.size());
+        try {
+            Landmarks.read(new ByteArrayInputStream(saved.toByteArray()), g,
+                           EDITED_WEIGHTING);
+            fail("landmarks read with stale weights");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+        byte[] corrupt = saved.toByteArray();
+        Arrays.fill(corrupt, 16, 20, (byte) 0xff);
+        try {
+            Landmarks.read(new ByteArrayInputStream(corrupt), g,
+                           PATH_WEIGHTING);
+            fail("corrupt landmarks read");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                double expected = pathWeight(
+                    Graphs.<WeightablePlace, WeightedPath>
+                    shortestPath(g, v0, v1, Graphs.ZERO_DISTANCER));
+                if (expected >= 0) {
+                    assertTrue("inadmissible landmark estimate",
+                        alt.dist(v0.getLabel(), v1.getLabel())
+                        <= expected + 1e-9);
+                }
+                assertEquals("incorrect: A* with landmarks", expected,
+                    pathWeight(Graphs.<WeightablePlace, WeightedPath>
+                               shortestPath(g, v0, v1, copy)),
+                    1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void landmarksDisconnected() {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        Graph<WeightablePlace, WeightedPath>.Vertex
+            a = g.add(new WeightablePlace("A", 0, 0)),
+            b = g.add(new WeightablePlace("B", 0, 0)),
+            c = g.add(new WeightablePlace("C", 0, 0)),
+            d = g.add(new WeightablePlace("D", 0, 0));
+        g.add(a, b, new WeightedPath("AB", 5));
+        g.add(c, d, new WeightedPath("CD", 7));
+        Landmarks<WeightablePlace, WeightedPath> alt =
+            new Landmarks<WeightablePlace, WeightedPath>(g, PATH_WEIGHTING,
+                                                         10);
+        assertEquals("wrong number of landmarks", 4, alt.size());
+        assertEquals("landmarks should cover both components", 7,
+                     alt.dist(c.getLabel(), d.getLabel()), 1e-9);
+        assertEquals("landmarks should cover both components", 5,
+                     alt.dist(a.getLabel(), b.getLabel()), 1e-9);
+    }
+
+    @Test
+    public void distanceMatrix() {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 50, 150, 64);
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> sources =
+            verts.subList(0, 30);
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> targets =
+            new ArrayList<Graph<WeightablePlace, WeightedPath>.Vertex>(
+                verts.subList(20, 50));
+        targets.add(verts.get(25));
+        ContractionHierarchy<WeightablePlace, WeightedPath> ch =
+            new ContractionHierarchy<WeightablePlace, WeightedPath>(g,
+                PATH_WEIGHTING);
+
+        double[][] plain =
+            Graphs.distanceMatrix(g, sources, targets, PATH_WEIGHTING);
+        double[][] buckets = ch.distanceMatrix(sources, targets);
+        for (int i = 0; i < sources.size(); i += 1) {
+            for (int j = 0; j < targets.size(); j += 1) {
+                double expected = pathWeight(
+                    Graphs.<WeightablePlace, WeightedPath>
+                    shortestPath(g, sources.get(i), targets.get(j), _H));
+                if (expected < 0) {
+                    expected = Double.POSITIVE_INFINITY;
+                }
+                assertEquals("incorrect: Graphs.distanceMatrix",
+                             expected, plain[i][j], 1e-9);
+                assertEquals("incorrect: ContractionHierarchy.distanceMatrix",
+                             expected, buckets[i][j], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void shortestPathTree() {
+        UndirectedGraph<WeightablePlace, WeightedPath> g =
+            new UndirectedGraph<WeightablePlace, WeightedPath>();
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 50, 70, 65);
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            ShortestPathTree<WeightablePlace, WeightedPath> tree =
+                Graphs.shortestPathTree(g, v0);
+            assertTrue("wrong source", tree.source() == v0);
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                double expected = pathWeight(
+                    Graphs.<WeightablePlace, WeightedPath>
+                    shortestPath(g, v0, v1, _H));
+                assertEquals("incorrect: shortestPathTree path",
+                             expected, pathWeight(tree.pathTo(v1)), 1e-9);
+                assertEquals("incorrect: shortestPathTree distance",
+                             expected < 0 ? Double.POSITIVE_INFINITY
+                             : expected, tree.distance(v1), 1e-9);
+                assertEquals("incorrect: shortestPathTree reachability",
+                             expected >= 0, tree.isReachable(v1));
+            }
+        }
+    }
+
+    @Test
+    public void componentIndex() {
+        checkComponents(new UndirectedGraph<WeightablePlace, WeightedPath>(),
+                        66);
+        checkComponents(new DirectedGraph<WeightablePlace, WeightedPath>(),
+                        67);
+    }
+
+    /** Checks a ComponentIndex of sparse random map G, generated from SEED,
+     *  against searches as G grows and shrinks. */
+    private void checkComponents(Graph<WeightablePlace, WeightedPath> g,
+                                 long seed) {
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 40, 20, seed);
+        ComponentIndex<WeightablePlace, WeightedPath> index =
+            new ComponentIndex<WeightablePlace, WeightedPath>(g);
+        checkComponents(g, verts, index);
+        Random rand = new Random(seed);
+        for (int i = 0; i < 10; i += 1) {
+            verts.add(g.add(new WeightablePlace("W" + i, 0, 0)));
+            g.add(verts.get(rand.nextInt(verts.size())),
+                  verts.get(rand.nextInt(verts.size())),
+                  new WeightedPath("F" + i, 200));
+        }
+        checkComponents(g, verts, index);
+        for (int i = 0; i < 8; i += 1) {
+            g.remove(g.edges().next());
+        }
+        g.remove(verts.remove(0));
+        checkComponents(g, verts, index);
+        index.close();
+        index.close();
+        g.remove(verts.remove(0));
+        g.add(new WeightablePlace("X", 0, 0));
+        try {
+            index.connected(verts.get(0), verts.get(1));
+            fail("closed ComponentIndex answered a query");
+        } catch (IllegalStateException e) {
+            /* Expected. */
+        }
+    }
+
+    /** Checks INDEX against searches between all pairs of VERTS in G. */
+    private void checkComponents(Graph<WeightablePlace, WeightedPath> g,
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts,
+        ComponentIndex<WeightablePlace, WeightedPath> index) {
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            ShortestPathTree<WeightablePlace, WeightedPath> tree =
+                Graphs.shortestPathTree(g, v0);
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                boolean reachable = tree.isReachable(v1);
+                if (g.isDirected()) {
+                    assertTrue("ComponentIndex rejected a reachable vertex",
+                               !reachable || index.mayReach(v0, v1));
+                } else {
+                    assertEquals("incorrect: ComponentIndex.mayReach",
+                                 reachable, index.mayReach(v0, v1));
+                    assertEquals("incorrect: ComponentIndex.connected",
+                                 reachable, index.connected(v0, v1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void csrGraph() {
+        DirectedGraph<WeightablePlace, WeightedPath> g =
+            new DirectedGraph<WeightablePlace, WeightedPath>();
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            randomMap(g, 40, 120, 68);
+        CsrGraph<WeightablePlace, WeightedPath> csr =
+            new CsrGraph<WeightablePlace, WeightedPath>(g);
+        assertEquals("wrong vertex count", g.vertexSize(), csr.vertexSize());
+        assertEquals("wrong edge count", g.edgeSize(), csr.edgeSize());
+        Iterator<Graph<WeightablePlace, WeightedPath>.Vertex> order =
+            csr.vertices();
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v : g.vertices()) {
+            assertTrue("wrong vertex order",
+                       order.next().getLabel() == v.getLabel());
+        }
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v0 : verts) {
+            Graph<WeightablePlace, WeightedPath>.Vertex c0 = csr.image(v0);
+            assertEquals("wrong out-degree", g.outDegree(v0),
+                         csr.outDegree(c0));
+            assertEquals("wrong in-degree", g.inDegree(v0),
+                         csr.inDegree(c0));
+            Iterator<Graph<WeightablePlace, WeightedPath>.Edge> edges =
+                csr.outEdges(c0);
+            for (Graph<WeightablePlace, WeightedPath>.Edge e
+                     : g.outEdges(v0)) {
+                Graph<WeightablePlace, WeightedPath>.Edge c = edges.next();
+                assertTrue("wrong edge", c.getLabel() == e.getLabel()
+                           && c.getV0() == c0
+                           && c.getV1() == csr.image(e.getV1()));
+            }
+            for (Graph<WeightablePlace, WeightedPath>.Vertex v1 : verts) {
+                Graph<WeightablePlace, WeightedPath>.Vertex c1 =
+                    csr.image(v1);
+                assertEquals("incorrect: CsrGraph.contains",
+                             g.contains(v0, v1), csr.contains(c0, c1));
+                assertEquals("incorrect: shortestPath on CsrGraph",
+                             pathWeight(Graphs.<WeightablePlace, WeightedPath>
+                                        shortestPath(g, v0, v1, _H)),
+                             pathWeight(Graphs.<WeightablePlace, WeightedPath>
+                                        shortestPath(csr, c0, c1, _H)),
+                             1e-9);
+            }
+        }
+        try {
+            csr.add(csr.image(verts.get(0)), csr.image(verts.get(1)));
+            fail("CsrGraph should be read-only");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+        checkOrderEdges(csr);
+        checkOrderEdges(g);
+    }
+
+    /** Checks that G.orderEdges orders edges by a comparator that finds
+     *  many labels equal, breaking ties by the original order of
+     *  G.edges(), and that a null comparator restores that order. */
+    private void checkOrderEdges(Graph<WeightablePlace, WeightedPath> g) {
+        List<String> stored = new ArrayList<String>();
+        for (Graph<WeightablePlace, WeightedPath>.Edge e : g.edges()) {
+            stored.add(e.getLabel().toString());
+        }
+        g.orderEdges(new Comparator<WeightedPath>() {
+            @Override
+            public int compare(WeightedPath p0, WeightedPath p1) {
+                return Double.compare(Math.floor(p0.weight() / 100),
+                                      Math.floor(p1.weight() / 100));
+            }
+        });
+        WeightedPath last = null;
+        for (Graph<WeightablePlace, WeightedPath>.Edge e : g.edges()) {
+            WeightedPath p = e.getLabel();
+            if (last != null) {
+                double k0 = Math.floor(last.weight() / 100),
+                    k1 = Math.floor(p.weight() / 100);
+                assertTrue("orderEdges out of order",
+                           k0 < k1 || k0 == k1
+                           && stored.indexOf(last.toString())
+                              < stored.indexOf(p.toString()));
+            }
+            last = p;
+        }
+        g.orderEdges(null);
+        List<String> restored = new ArrayList<String>();
+        for (Graph<WeightablePlace, WeightedPath>.Edge e : g.edges()) {
+            restored.add(e.getLabel().toString());
+        }
+        assertEquals("orderEdges(null) should restore the order", stored,
+                     restored);
+    }
+
+    @Test
+    public void mappedGraph() throws IOException {
+        UndirectedGraph<WeightablePlace, WeightedPath> g =
+            new UndirectedGraph<WeightablePlace, WeightedPath>();
+        randomMap(g, 30, 80, 71);
+        File file = File.createTempFile("graph", ".map");
+        file.deleteOnExit();
+        MappedGraph.write(g, PATH_WEIGHTING, PLACE_CODEC, PATH_CODEC, file);
+        MappedGraph<WeightablePlace, WeightedPath> mapped =
+            MappedGraph.open(file, PLACE_CODEC, PATH_CODEC);
+        assertEquals("wrong vertex count", g.vertexSize(),
+                     mapped.vertexSize());
+        assertEquals("wrong edge count", g.edgeSize(), mapped.edgeSize());
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            new ArrayList<Graph<WeightablePlace, WeightedPath>.Vertex>(),
+            images =
+            new ArrayList<Graph<WeightablePlace, WeightedPath>.Vertex>();
+        Iterator<Graph<WeightablePlace, WeightedPath>.Vertex> order =
+            mapped.vertices();
+        for (Graph<WeightablePlace, WeightedPath>.Vertex v : g.vertices()) {
+            Graph<WeightablePlace, WeightedPath>.Vertex m = order.next();
+            assertEquals("wrong vertex label", v.getLabel().toString(),
+                         m.getLabel().toString());
+            verts.add(v);
+            images.add(m);
+        }
+        assertTrue("vertices should keep their identities",
+                   mapped.vertices().next() == images.get(0));
+        for (int i = 0; i < verts.size(); i += 1) {
+            Graph<WeightablePlace, WeightedPath>.Vertex v0 = verts.get(i),
+                m0 = images.get(i);
+            assertEquals("wrong out-degree", g.outDegree(v0),
+                         mapped.outDegree(m0));
+            for (int j = 0; j < verts.size(); j += 1) {
+                Graph<WeightablePlace, WeightedPath>.Vertex v1 = verts.get(j),
+                    m1 = images.get(j);
+                double w = pathWeight(Graphs.<WeightablePlace, WeightedPath>
+                                      shortestPath(g, v0, v1, _H));
+                assertEquals("incorrect: shortestPath on MappedGraph", w,
+                             pathWeight(Graphs.<WeightablePlace, WeightedPath>
+                                        shortestPath(mapped, m0, m1, _H)),
+                             1e-9);
+                assertEquals("incorrect: stored weights", w,
+                             pathWeight(Graphs.bidirectionalShortestPath(
+                                 mapped, m0, m1, _H, mapped.weighting())),
+                             1e-9);
+            }
+        }
+        try {
+            mapped.add(images.get(0), images.get(1));
+            fail("MappedGraph should be read-only");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+        Graph<WeightablePlace, WeightedPath>.Edge first =
+            mapped.edges().next();
+        assertTrue("edges should keep their identities",
+                   mapped.edges().next() == first
+                   && mapped.outEdges(first.getV0()).next() != null
+                   && mapped.containsEdge(first));
+        checkOrderEdges(mapped);
+
+        byte[] header = Files.readAllBytes(file.toPath());
+        Arrays.fill(header, 8, 12, (byte) 0xff);
+        Files.write(file.toPath(), header);
+        try {
+            MappedGraph.open(file, PLACE_CODEC, PATH_CODEC);
+            fail("graph with a negative vertex count opened");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+        Files.write(file.toPath(), Arrays.copyOf(header, 20));
+        try {
+            MappedGraph.open(file, PLACE_CODEC, PATH_CODEC);
+            fail("truncated graph opened");
+        } catch (IOException e) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void intGraph() {
+        checkIntGraph(true);
+        checkIntGraph(false);
+    }
+
+    /** Checks an IntGraph, directed iff DIRECTED, against the Graph built
+     *  from the same pseudo-random map. */
+    private void checkIntGraph(boolean directed) {
+        Random rand = new Random(73);
+        GraphBuilder<WeightablePlace, WeightedPath> builder =
+            new GraphBuilder<WeightablePlace, WeightedPath>();
+        int nv = 30;
+        for (int i = 0; i < nv; i += 1) {
+            builder.addVertex(new WeightablePlace("V" + i, rand.nextInt(100),
+                                                  rand.nextInt(100)));
+        }
+        for (int i = 0; i < 90; i += 1) {
+            builder.addEdge(rand.nextInt(nv), rand.nextInt(nv),
+                new WeightedPath("E" + i, 1 + rand.nextInt(50)));
+        }
+        Graph<WeightablePlace, WeightedPath> g =
+            directed ? builder.buildDirected() : builder.buildUndirected();
+        IntGraph ig = builder.buildIntGraph(directed);
+        double[] weights = builder.weights(PATH_WEIGHTING);
+        float[] fweights = new float[weights.length];
+        for (int e = 0; e < weights.length; e += 1) {
+            fweights[e] = (float) weights[e];
+        }
+        assertEquals("wrong edge count", g.edgeSize(), ig.edgeSize());
+        for (int v0 = 0; v0 < nv; v0 += 1) {
+            Graph<WeightablePlace, WeightedPath>.Vertex u0 =
+                builder.vertex(v0);
+            assertEquals("wrong out-degree", g.outDegree(u0),
+                         ig.outDegree(v0));
+            assertEquals("wrong in-degree",
+                         directed ? g.inDegree(u0) : g.outDegree(u0),
+                         ig.inDegree(v0));
+            double[] dist = Graphs.distances(ig, v0, weights);
+            double[] fdist = Graphs.distances(ig, v0, fweights);
+            for (int v1 = 0; v1 < nv; v1 += 1) {
+                Graph<WeightablePlace, WeightedPath>.Vertex u1 =
+                    builder.vertex(v1);
+                assertEquals("incorrect: IntGraph.contains",
+                             g.contains(u0, u1), ig.contains(v0, v1));
+                double expected =
+                    pathWeight(Graphs.bidirectionalShortestPath(g, u0, u1,
+                        Graphs.ZERO_DISTANCER, PATH_WEIGHTING));
+                int[] path = Graphs.shortestPath(ig, v0, v1, weights);
+                assertEquals("incorrect: IntGraph shortestPath", expected,
+                             intPathWeight(ig, v0, v1, path, weights), 1e-9);
+                assertEquals("incorrect: float shortestPath", expected,
+                    intPathWeight(ig, v0, v1,
+                        Graphs.shortestPath(ig, v0, v1, fweights), weights),
+                    1e-9);
+                assertEquals("incorrect: IntGraph distances",
+                             expected < 0 ? Double.POSITIVE_INFINITY
+                             : expected, dist[v1], 1e-9);
+                assertEquals("incorrect: float distances", dist[v1],
+                             fdist[v1], 1e-9);
+            }
+        }
+    }
+
+    /** Checks that PATH is a path from V0 to V1 in G and returns its total
+     *  weight according to WEIGHTS, or -1 if PATH is null. */
+    private static double intPathWeight(IntGraph g, int v0, int v1,
+                                        int[] path, double[] weights) {
+        if (path == null) {
+            return -1;
+        }
+        double result = 0;
+        int v = v0;
+        for (int e : path) {
+            assertTrue("broken path", g.from(e) == v
+                       || !g.isDirected() && g.to(e) == v);
+            v = g.other(e, v);
+            result += weights[e];
+        }
+        assertEquals("path ends at wrong vertex", v1, v);
+        return result;
+    }
+
+    @Test
+    public void breadthFirstLevels() {
+        checkLevels(new DirectedGraph<Integer, Integer>());
+        checkLevels(new UndirectedGraph<Integer, Integer>());
+    }
+
+    /** Fills G with a pseudo-random graph large enough for a parallel
+     *  breadth-first search to switch direction, and checks its levels
+     *  against those of a shortest-path tree with unit weights. */
+    private void checkLevels(Graph<Integer, Integer> g) {
+        Random rand = new Random(79);
+        int nv = 20000;
+        List<Graph<Integer, Integer>.Vertex> verts =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < nv; i += 1) {
+            verts.add(g.add(i));
+        }
+        for (int i = 0; i < 4 * nv; i += 1) {
+            g.add(verts.get(rand.nextInt(nv)), verts.get(rand.nextInt(nv)), i);
+        }
+        for (int i = 0; i < nv; i += 100) {
+            g.remove(verts.get(i));
+        }
+        Graph<Integer, Integer>.Vertex source = verts.get(1);
+        final AtomicInteger visits = new AtomicInteger();
+        BreadthFirstLevels<Integer, Integer> levels =
+            Graphs.breadthFirstLevels(g, source,
+                new LevelVisitor<Integer, Integer>() {
+                    @Override
+                    public void visit(Graph<Integer, Integer>.Vertex v,
+                                      int level) {
+                        visits.incrementAndGet();
+                    }
+                });
+        ShortestPathTree<Integer, Integer> tree =
+            Graphs.shortestPathTree(g, source, new Weighting<Integer>() {
+                    @Override
+                    public double weight(Integer x) {
+                        return 1;
+                    }
+                });
+        int reached = 0, depth = 0;
+        for (Graph<Integer, Integer>.Vertex v : g.vertices()) {
+            int level = levels.level(v);
+            if (tree.isReachable(v)) {
+                reached += 1;
+                depth = Math.max(depth, level);
+                assertEquals("wrong level", tree.distance(v), level, 0.0);
+                assertEquals("wrong path length", level,
+                             levels.pathTo(v).size());
+                if (level > 0) {
+                    Graph<Integer, Integer>.Edge e = levels.parent(v);
+                    assertEquals("wrong parent level", level - 1,
+                                 levels.level(e.getV(v)));
+                }
+            } else {
+                assertEquals("unreachable vertex reached", -1, level);
+                assertEquals("unreachable vertex has a path", null,
+                             levels.pathTo(v));
+            }
+        }
+        assertTrue("search too small to test", depth > 3);
+        assertEquals("wrong reached count", reached, levels.reachedSize());
+        assertEquals("wrong visit count", reached, visits.get());
+        assertEquals("wrong depth", depth, levels.depth());
+    }
+
+    /** Adds NV vertices at pseudo-random positions to G, and NE edges
+     *  between them whose weights are at least the distances between their
+     *  ends, using SEED to seed the generator.  Returns the vertices in
+     *  order of addition. */
+    private List<Graph<WeightablePlace, WeightedPath>.Vertex>
+    randomMap(Graph<WeightablePlace, WeightedPath> g, int nv, int ne,
+              long seed) {
+        Random rand = new Random(seed);
+        List<Graph<WeightablePlace, WeightedPath>.Vertex> verts =
+            new ArrayList<Graph<WeightablePlace, WeightedPath>.Vertex>();
+        for (int i = 0; i < nv; i += 1) {
+            verts.add(g.add(new WeightablePlace("V" + i, rand.nextInt(100),
+                                                rand.nextInt(100))));
+        }
+        for (int i = 0; i < ne; i += 1) {
+            Graph<WeightablePlace, WeightedPath>.Vertex
+                v0 = verts.get(rand.nextInt(nv)),
+                v1 = verts.get(rand.nextInt(nv));
+            g.add(v0, v1, new WeightedPath("E" + i,
+                _H.dist(v0.getLabel(), v1.getLabel()) + rand.nextInt(20)));
+        }
+        return verts;
+    }
+
+    /** Returns the total weight of PATH, or -1 if PATH is null. */
+    private static double
+    pathWeight(List<Graph<WeightablePlace, WeightedPath>.Edge> path) {
+        if (path == null) {
+            return -1;
+        }
+        double result = 0;
+        for (Graph<WeightablePlace, WeightedPath>.Edge e : path) {
+            result += e.getLabel().weight();
+        }
+        return result;
+    }
+
+    /** Weights WeightedPaths by their weight. */
+    private static final Weighting<WeightedPath> PATH_WEIGHTING =
+        new Weighting<WeightedPath>() {
+            @Override
+            public double weight(WeightedPath p) {
+                return p.weight();
+            }
+        };
+
+    /** Weights WeightedPaths by their weight, except that path E0 is
+     *  shortened, as if it had been edited. */
+    private static final Weighting<WeightedPath> EDITED_WEIGHTING =
+        new Weighting<WeightedPath>() {
+            @Override
+            public double weight(WeightedPath p) {
+                return p.toString().equals("E0") ? p.weight() / 2
+                    : p.weight();
+            }
+        };
+
+
+    /** Encodes WeightablePlaces as their names and coordinates. */
+    private static final LabelCodec<WeightablePlace> PLACE_CODEC =
+        new LabelCodec<WeightablePlace>() {
+            @Override
+            public String encode(WeightablePlace p) {
+                double[] xy = p.getCoords();
+                return p + " " + (int) xy[0] + " " + (int) xy[1];
+            }
+
+            @Override
+            public WeightablePlace decode(String text) {
+                String[] parts = text.split(" ");
+                return new WeightablePlace(parts[0],
+                                           Integer.parseInt(parts[1]),
+                                           Integer.parseInt(parts[2]));
+            }
+        };
+
+    /** Encodes WeightedPaths as their names and weights. */
+    private static final LabelCodec<WeightedPath> PATH_CODEC =
+        new LabelCodec<WeightedPath>() {
+            @Override
+            public String encode(WeightedPath p) {
+                return p + " " + p.weight();
+            }
+
+            @Override
+            public WeightedPath decode(String text) {
+                String[] parts = text.split(" ");
+                return new WeightedPath(parts[0],
+                                        Double.parseDouble(parts[1]));
+            }
+        };
 
     /** Adds an edge between V0 and V1 in graph G designated by String S
      *  with weight determined by the Distancer D. */
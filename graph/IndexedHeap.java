@@ -0,0 +1,175 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A 4-ary min-heap of dense integer ids keyed by primitive doubles.  Each
+ *  id is in the heap at most once; its key may be lowered or raised in
+ *  place.  Ids with equal keys are all kept (none is lost to a tie).
+ *  @author Aleks Kamko
+ */
+class IndexedHeap {
+
+    /** An empty heap able to hold ids in [0, CAPACITY) without growing. */
+    IndexedHeap(int capacity) {
+        _ids = new int[Math.max(capacity, 1)];
+        _keys = new double[_ids.length];
+        _pos = new int[_ids.length];
+        Arrays.fill(_pos, ABSENT);
+        _size = 0;
+    }
+
+    /** Makes room for ids in [0, CAPACITY). */
+    void ensureCapacity(int capacity) {
+        if (capacity <= _pos.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, 2 * _pos.length);
+        int oldLength = _pos.length;
+        _ids = Arrays.copyOf(_ids, newLength);
+        _keys = Arrays.copyOf(_keys, newLength);
+        _pos = Arrays.copyOf(_pos, newLength);
+        Arrays.fill(_pos, oldLength, newLength, ABSENT);
+    }
+
+    /** Returns the number of ids in me. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns true iff I contain no ids. */
+    boolean isEmpty() {
+        return _size == 0;
+    }
+
+    /** Returns true iff ID is in me. */
+    boolean contains(int id) {
+        return id < _pos.length && _pos[id] != ABSENT;
+    }
+
+    /** Returns the key of ID, which must be in me. */
+    double key(int id) {
+        return _keys[_pos[id]];
+    }
+
+    /** Inserts ID with key KEY, or changes its key to KEY if it is
+     *  already present. */
+    void put(int id, double key) {
+        int i = _pos[id];
+        if (i == ABSENT) {
+            i = _size;
+            _size += 1;
+            _ids[i] = id;
+            _keys[i] = key;
+            _pos[id] = i;
+            siftUp(i);
+        } else if (key < _keys[i]) {
+            _keys[i] = key;
+            siftUp(i);
+        } else {
+            _keys[i] = key;
+            siftDown(i);
+        }
+    }
+
+    /** Returns an id with minimal key. Assumes I am not empty. */
+    int peek() {
+        return _ids[0];
+    }
+
+    /** Returns the minimal key in me. Assumes I am not empty. */
+    double peekKey() {
+        return _keys[0];
+    }
+
+    /** Removes and returns an id with minimal key. Assumes I am not
+     *  empty. */
+    int poll() {
+        int result = _ids[0];
+        _pos[result] = ABSENT;
+        _size -= 1;
+        if (_size > 0) {
+            _ids[0] = _ids[_size];
+            _keys[0] = _keys[_size];
+            _pos[_ids[0]] = 0;
+            siftDown(0);
+        }
+        return result;
+    }
+
+    /** Removes all ids from me in time proportional to my size. */
+    void clear() {
+        for (int i = 0; i < _size; i += 1) {
+            _pos[_ids[i]] = ABSENT;
+        }
+        _size = 0;
+    }
+
+    /** Moves the entry at heap index I up until its parent is no larger. */
+    private void siftUp(int i) {
+        int id = _ids[i];
+        double key = _keys[i];
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (_keys[parent] <= key) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        place(id, key, i);
+    }
+
+    /** Moves the entry at heap index I down until no child is smaller. */
+    private void siftDown(int i) {
+        int id = _ids[i];
+        double key = _keys[i];
+        while (true) {
+            int first = ARITY * i + 1;
+            if (first >= _size) {
+                break;
+            }
+            int last = Math.min(first + ARITY, _size);
+            int least = first;
+            for (int c = first + 1; c < last; c += 1) {
+                if (_keys[c] < _keys[least]) {
+                    least = c;
+                }
+            }
+            if (_keys[least] >= key) {
+                break;
+            }
+            move(least, i);
+            i = least;
+        }
+        place(id, key, i);
+    }
+
+    /** Copies the entry at heap index FROM to heap index TO. */
+    private void move(int from, int to) {
+        _ids[to] = _ids[from];
+        _keys[to] = _keys[from];
+        _pos[_ids[to]] = to;
+    }
+
+    /** Stores ID with KEY at heap index I. */
+    private void place(int id, double key, int i) {
+        _ids[i] = id;
+        _keys[i] = key;
+        _pos[id] = i;
+    }
+
+    /** Number of children of each heap node. */
+    private static final int ARITY = 4;
+    /** Value of _pos for ids not in the heap. */
+    private static final int ABSENT = -1;
+
+    /** Ids in heap order. */
+    private int[] _ids;
+    /** _keys[i] is the key of _ids[i]. */
+    private double[] _keys;
+    /** _pos[id] is the heap index of ID, or ABSENT. */
+    private int[] _pos;
+    /** Number of ids in me. */
+    private int _size;
+
+}
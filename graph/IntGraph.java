@@ -0,0 +1,153 @@
+package graph;
+
+import java.util.Arrays;
+
+/** A graph whose vertices are the integers 0 .. vertexSize()-1 and whose
+ *  edges are the integers 0 .. edgeSize()-1, without labels or vertex and
+ *  edge objects.  The ends of each edge are kept in two int arrays, and
+ *  the edges incident on each vertex in compressed sparse row form (as in
+ *  CsrGraph), so an edge takes 16 bytes in all.  Edge weights, if needed,
+ *  are kept by the client in a double[] or float[] indexed by edge, and
+ *  passed to the IntGraph methods of Graphs.
+ *
+ *  An IntGraph does not change once made.  In an undirected IntGraph, the
+ *  outgoing and incoming edges of a vertex are the same (all its edges),
+ *  so that searches may run in either direction unchanged, and a self
+ *  edge appears twice among the edges of its vertex.
+ *  @author Aleks Kamko
+ */
+public class IntGraph {
+
+    /** A graph with VERTICES vertices and EDGES edges, in which edge e
+     *  leaves FROM[e] and enters TO[e] if DIRECTED, and otherwise joins
+     *  them.  Only the first EDGES entries of FROM and TO are used. */
+    public IntGraph(int vertices, int[] from, int[] to, int edges,
+                    boolean directed) {
+        _directed = directed;
+        _from = Arrays.copyOf(from, edges);
+        _to = Arrays.copyOf(to, edges);
+        for (int e = 0; e < edges; e += 1) {
+            if (_from[e] < 0 || _from[e] >= vertices
+                || _to[e] < 0 || _to[e] >= vertices) {
+                throw new IndexOutOfBoundsException("no such vertex");
+            }
+        }
+        _outOffsets = new int[vertices + 1];
+        if (directed) {
+            _inOffsets = new int[vertices + 1];
+            _outEdges = group(_from, null, _outOffsets);
+            _inEdges = group(_to, null, _inOffsets);
+        } else {
+            _inOffsets = _outOffsets;
+            _outEdges = _inEdges = group(_from, _to, _outOffsets);
+        }
+    }
+
+    /** Returns the number of my vertices. */
+    public int vertexSize() {
+        return _outOffsets.length - 1;
+    }
+
+    /** Returns the number of my edges. */
+    public int edgeSize() {
+        return _from.length;
+    }
+
+    /** Returns true iff I am directed. */
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    /** Returns the vertex edge E leaves (one of its ends, if I am
+     *  undirected). */
+    public int from(int e) {
+        return _from[e];
+    }
+
+    /** Returns the vertex edge E enters (its other end, if I am
+     *  undirected). */
+    public int to(int e) {
+        return _to[e];
+    }
+
+    /** Returns the end of edge E other than V, which must be one of its
+     *  ends. */
+    public int other(int e, int v) {
+        return _from[e] == v ? _to[e] : _from[e];
+    }
+
+    /** Returns the number of edges leaving V. */
+    public int outDegree(int v) {
+        return _outOffsets[v + 1] - _outOffsets[v];
+    }
+
+    /** Returns the number of edges entering V. */
+    public int inDegree(int v) {
+        return _inOffsets[v + 1] - _inOffsets[v];
+    }
+
+    /** Returns the Kth edge leaving V, where 0 <= K < outDegree(V). */
+    public int outEdge(int v, int k) {
+        return _outEdges[_outOffsets[v] + k];
+    }
+
+    /** Returns the Kth edge entering V, where 0 <= K < inDegree(V). */
+    public int inEdge(int v, int k) {
+        return _inEdges[_inOffsets[v] + k];
+    }
+
+    /** Returns true iff there is an edge from U to V. */
+    public boolean contains(int u, int v) {
+        for (int k = _outOffsets[u]; k < _outOffsets[u + 1]; k += 1) {
+            if (other(_outEdges[k], u) == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the edges grouped by the vertex in ENDS (and also in
+     *  OTHERENDS, unless it is null), in increasing order within each
+     *  group, filling in OFFSETS with the start of each group. */
+    private static int[] group(int[] ends, int[] otherEnds, int[] offsets) {
+        int n = offsets.length - 1;
+        for (int e = 0; e < ends.length; e += 1) {
+            offsets[ends[e] + 1] += 1;
+            if (otherEnds != null) {
+                offsets[otherEnds[e] + 1] += 1;
+            }
+        }
+        for (int v = 0; v < n; v += 1) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] result = new int[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int e = 0; e < ends.length; e += 1) {
+            result[next[ends[e]]] = e;
+            next[ends[e]] += 1;
+            if (otherEnds != null) {
+                result[next[otherEnds[e]]] = e;
+                next[otherEnds[e]] += 1;
+            }
+        }
+        return result;
+    }
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** The vertex each edge leaves. */
+    private final int[] _from;
+    /** The vertex each edge enters. */
+    private final int[] _to;
+    /** Start of the outgoing edges of each vertex in _outEdges, with a
+     *  final entry marking the end. */
+    private final int[] _outOffsets;
+    /** The outgoing edges of each vertex, grouped by vertex. */
+    private final int[] _outEdges;
+    /** Start of the incoming edges of each vertex in _inEdges, with a
+     *  final entry marking the end. */
+    private final int[] _inOffsets;
+    /** The incoming edges of each vertex, grouped by vertex. */
+    private final int[] _inEdges;
+
+}
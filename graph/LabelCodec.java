@@ -0,0 +1,16 @@
+package graph;
+
+/** Converts values of type ITEM to and from text, so that they may be
+ *  stored outside the heap (as by MappedGraph).  For any label x,
+ *  decode(encode(x)) must be equivalent to x.
+ *  @author Aleks Kamko
+ */
+public interface LabelCodec<Item> {
+
+    /** Returns a textual form of X. */
+    String encode(Item x);
+
+    /** Returns the value whose textual form is TEXT. */
+    Item decode(String text);
+
+}
@@ -0,0 +1,233 @@
+package graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/** A Distancer for A* searches on a fixed graph that bounds distances using
+ *  precomputed distances to and from a few landmark vertices (the "ALT"
+ *  technique).  For any landmark L and vertices v and t, the triangle
+ *  inequality gives
+ *       dist(v, t) >= dist(L, t) - dist(L, v)   and
+ *       dist(v, t) >= dist(v, L) - dist(t, L),
+ *  and dist returns the largest such bound.  The result is admissible and
+ *  consistent, so it may be passed as H to Graphs.shortestPath,
+ *  Graphs.bidirectionalShortestPath, and ShortestPathEngine.  Unlike a
+ *  geometric estimate, it follows the actual road network.
+ *
+ *  The arguments to dist must be labels of vertices of the graph (compared
+ *  by identity).  The tables reflect the graph and edge weights at the time
+ *  they were built; they may be saved with write and restored with read
+ *  against the same graph (built the same way, with the same edge
+ *  weights).  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class Landmarks<VLabel, ELabel> implements Distancer<VLabel> {
+
+    /** Landmark tables for G, with up to K landmarks, taking the weight of
+     *  each edge from its label according to EWEIGHTER.  Each landmark is
+     *  chosen to be as far as possible from those already chosen,
+     *  preferring vertices that no landmark yet reaches or is reached
+     *  from.  There are fewer than K landmarks if G runs out of vertices
+     *  to choose. */
+    public Landmarks(Graph<VLabel, ELabel> G,
+                     Weighting<? super ELabel> eweighter, int k) {
+        this(G, Math.min(k, G.vertexSize()), Graphs.checksum(G, eweighter));
+        if (_count == 0) {
+            return;
+        }
+        SearchState<VLabel, ELabel> state =
+            new SearchState<VLabel, ELabel>(_bound);
+        double[] nearest = new double[_bound];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        boolean[] chosen = new boolean[_bound];
+
+        Graph<VLabel, ELabel>.Vertex next = G.vertices().next();
+        Graphs.dijkstra(G, next, eweighter, false, state);
+        next = farthest(state, null, chosen);
+        for (int i = 0; i < _count; i += 1) {
+            if (next == null) {
+                shrink(i);
+                break;
+            }
+            _landmarks[i] = next.id();
+            chosen[next.id()] = true;
+            Graphs.dijkstra(G, next, eweighter, true, state);
+            for (int v = 0; v < _bound; v += 1) {
+                _to[i][v] = state.dist(v);
+            }
+            Graphs.dijkstra(G, next, eweighter, false, state);
+            for (int v = 0; v < _bound; v += 1) {
+                _from[i][v] = state.dist(v);
+                if (_vertices[v] != null) {
+                    nearest[v] = Math.min(nearest[v],
+                                          _from[i][v] + _to[i][v]);
+                }
+            }
+            next = farthest(null, nearest, chosen);
+        }
+    }
+
+    /** Empty tables for COUNT landmarks in G, whose checksum (as computed
+     *  by Graphs.checksum) is CHECKSUM. */
+    private Landmarks(Graph<VLabel, ELabel> G, int count, long checksum) {
+        _bound = G.vertexIdBound();
+        _count = count;
+        _checksum = checksum;
+        _landmarks = new int[count];
+        _from = new double[count][_bound];
+        _to = new double[count][_bound];
+        _vertices = newVertexArray(_bound);
+        _ids = new IdentityHashMap<VLabel, Integer>();
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            _vertices[v.id()] = v;
+            _ids.put(v.getLabel(), v.id());
+        }
+    }
+
+    /** Returns the landmark tables for G, whose edges are weighted by
+     *  EWEIGHTER, previously saved by write on INPUT.  G must have been
+     *  built the same way as the graph the tables were saved from.  Throws
+     *  IOException on read errors or if the saved tables do not match G:
+     *  if any vertex, edge, or edge weight has changed since they were
+     *  saved, since the estimates might then no longer be admissible. */
+    public static <VLabel, ELabel> Landmarks<VLabel, ELabel>
+    read(InputStream input, Graph<VLabel, ELabel> G,
+         Weighting<? super ELabel> eweighter) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        long checksum = Graphs.checksum(G, eweighter);
+        if (in.readInt() != MAGIC || in.readInt() != G.vertexIdBound()
+            || in.readLong() != checksum) {
+            throw new IOException("landmarks do not match graph");
+        }
+        int count = in.readInt();
+        if (count < 0 || count > G.vertexSize()) {
+            throw new IOException("malformed landmarks");
+        }
+        Landmarks<VLabel, ELabel> result =
+            new Landmarks<VLabel, ELabel>(G, count, checksum);
+        for (int i = 0; i < result._count; i += 1) {
+            result._landmarks[i] = in.readInt();
+            if (result._landmarks[i] < 0
+                || result._landmarks[i] >= result._bound
+                || result._vertices[result._landmarks[i]] == null) {
+                throw new IOException("landmarks do not match graph");
+            }
+            for (int v = 0; v < result._bound; v += 1) {
+                result._from[i][v] = in.readDouble();
+                result._to[i][v] = in.readDouble();
+            }
+        }
+        return result;
+    }
+
+    /** Saves me on OUTPUT in a form that read can restore. */
+    public void write(OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(_bound);
+        out.writeLong(_checksum);
+        out.writeInt(_count);
+        for (int i = 0; i < _count; i += 1) {
+            out.writeInt(_landmarks[i]);
+            for (int v = 0; v < _bound; v += 1) {
+                out.writeDouble(_from[i][v]);
+                out.writeDouble(_to[i][v]);
+            }
+        }
+        out.flush();
+    }
+
+    /** Returns the number of landmarks. */
+    public int size() {
+        return _count;
+    }
+
+    @Override
+    public double dist(VLabel v0, VLabel v1) {
+        int v = _ids.get(v0), t = _ids.get(v1);
+        double result = 0;
+        for (int i = 0; i < _count; i += 1) {
+            double[] from = _from[i], to = _to[i];
+            if (from[t] != Double.POSITIVE_INFINITY
+                && from[v] != Double.POSITIVE_INFINITY) {
+                result = Math.max(result, from[t] - from[v]);
+            }
+            if (to[v] != Double.POSITIVE_INFINITY
+                && to[t] != Double.POSITIVE_INFINITY) {
+                result = Math.max(result, to[v] - to[t]);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the vertex, other than those whose ids are CHOSEN, with
+     *  the greatest distance, or null if there is none.  The distances are
+     *  taken from STATE if it is not null, in which case unreached
+     *  vertices are skipped, and otherwise from DISTS (indexed by id), in
+     *  which case an infinite distance is greatest. */
+    private Graph<VLabel, ELabel>.Vertex
+    farthest(SearchState<VLabel, ELabel> state, double[] dists,
+             boolean[] chosen) {
+        Graph<VLabel, ELabel>.Vertex result = null;
+        double most = -1;
+        for (int v = 0; v < _bound; v += 1) {
+            if (_vertices[v] == null || chosen[v]) {
+                continue;
+            }
+            double d = state != null ? state.dist(v) : dists[v];
+            if (state != null && d == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            if (d > most) {
+                most = d;
+                result = _vertices[v];
+                if (d == Double.POSITIVE_INFINITY) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Discards all but my first COUNT landmarks. */
+    private void shrink(int count) {
+        _count = count;
+        _landmarks = Arrays.copyOf(_landmarks, count);
+        _from = Arrays.copyOf(_from, count);
+        _to = Arrays.copyOf(_to, count);
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** Leading word of saved landmark tables. */
+    private static final int MAGIC = 0x414c5432;
+
+    /** Upper bound on the vertex ids of the graph. */
+    private final int _bound;
+    /** Number of landmarks. */
+    private int _count;
+    /** Checksum of the graph and its edge weights when I was built. */
+    private final long _checksum;
+    /** Vertex ids of the landmarks. */
+    private int[] _landmarks;
+    /** _from[i][v] is the distance from landmark i to vertex id v. */
+    private double[][] _from;
+    /** _to[i][v] is the distance from vertex id v to landmark i. */
+    private double[][] _to;
+    /** Vertices of the graph, indexed by id (null for unused ids). */
+    private final Graph<VLabel, ELabel>.Vertex[] _vertices;
+    /** Maps each vertex label to the id of its vertex. */
+    private final Map<VLabel, Integer> _ids;
+
+}
@@ -0,0 +1,15 @@
+package graph;
+
+/** A callback told of each vertex reached by a parallel breadth-first
+ *  search (Graphs.breadthFirstLevels).  It is called once per reached
+ *  vertex, possibly from several threads at once, so it must be
+ *  thread-safe.  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public interface LevelVisitor<VLabel, ELabel> {
+
+    /** Reports that V was reached by a path of LEVEL edges, and by no
+     *  shorter path. */
+    void visit(Graph<VLabel, ELabel>.Vertex v, int level);
+
+}
@@ -0,0 +1,648 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** A read-only graph kept in a file and mapped into memory rather than
+ *  held on the heap.  The file, written by write, holds the adjacency of
+ *  each vertex in compressed sparse row form (as in CsrGraph), the ends and
+ *  weight of each edge, and the labels as text.  Opening it maps the file
+ *  read-only, so the operating system pages it in as it is used, and
+ *  programs mapping the same file share one copy in the page cache.
+ *
+ *  The only per-vertex and per-edge heap storage are tables of references
+ *  to Vertex and Edge objects, each created the first time it is needed
+ *  and then kept, so that vertices and edges have their usual identities.
+ *  Each decodes its label only when first asked for it.  Searches that
+ *  weight edges by weighting() read the stored weights without decoding
+ *  any edge labels.
+ *
+ *  A mapped graph supports the Graph API except for the operations that
+ *  add or remove vertices or edges, which throw
+ *  UnsupportedOperationException.  Vertices are numbered from 0 in the
+ *  order of the original graph's vertices(), and edges in the order of its
+ *  edges().  Each section of the file may hold up to 2^31 - 1 items.
+ *  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class MappedGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
+
+    /** The graph stored in the sections of HEADER, decoding labels with
+     *  VCODEC and ECODEC. */
+    private MappedGraph(Header header, Region[] sections,
+                        LabelCodec<VLabel> vcodec, LabelCodec<ELabel> ecodec) {
+        _directed = header.directed;
+        _vertexCount = header.vertexCount;
+        _edgeCount = header.edgeCount;
+        _outOffsets = sections[0];
+        _outEdges = sections[1];
+        _outTargets = sections[2];
+        _inOffsets = sections[3];
+        _inEdges = sections[4];
+        _ends = sections[5];
+        _weights = sections[6];
+        _vtext = sections[7];
+        _etext = sections[8];
+        _text = sections[9];
+        _vcodec = vcodec;
+        _ecodec = ecodec;
+        _vertices = new AtomicReferenceArray<Vertex>(_vertexCount);
+        _edges = new AtomicReferenceArray<Edge>(_edgeCount);
+        _weighting = new Weighting<ELabel>() {
+            @Override
+            public double weight(ELabel label) {
+                throw new UnsupportedOperationException(
+                    "stored weights are only available from their graph");
+            }
+        };
+    }
+
+    /** Writes G to FILE in the form read by open, encoding labels with
+     *  VCODEC and ECODEC and storing the weight of each edge given by
+     *  EWEIGHTER. */
+    public static <VLabel, ELabel> void
+    write(Graph<VLabel, ELabel> G, Weighting<? super ELabel> eweighter,
+          LabelCodec<? super VLabel> vcodec, LabelCodec<? super ELabel> ecodec,
+          File file) throws IOException {
+        int n = G.vertexSize(), m = G.edgeSize();
+        List<Graph<VLabel, ELabel>.Vertex> vertices =
+            new ArrayList<Graph<VLabel, ELabel>.Vertex>(n);
+        List<Graph<VLabel, ELabel>.Edge> edges =
+            new ArrayList<Graph<VLabel, ELabel>.Edge>(m);
+        int[] vindex = new int[G.vertexIdBound()];
+        int[] eindex = new int[G.edgeIdBound()];
+        for (Graph<VLabel, ELabel>.Vertex v : G.vertices()) {
+            vindex[v.id()] = vertices.size();
+            vertices.add(v);
+        }
+        for (Graph<VLabel, ELabel>.Edge e : G.edges()) {
+            eindex[e.id()] = edges.size();
+            edges.add(e);
+        }
+        int outCount, inCount;
+        outCount = inCount = 0;
+        for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+            outCount += G.outDegree(v);
+            inCount += G.inDegree(v);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(G.isDirected() ? 1 : 0);
+            out.writeInt(n);
+            out.writeInt(m);
+            out.writeInt(outCount);
+            out.writeInt(inCount);
+            long textSize = 0;
+            for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                textSize += bytes(vcodec.encode(v.getLabel())).length;
+            }
+            for (Graph<VLabel, ELabel>.Edge e : edges) {
+                textSize += bytes(ecodec.encode(e.getLabel())).length;
+            }
+            out.writeLong(textSize);
+
+            for (int pass = 0; pass < 2; pass += 1) {
+                boolean outgoing = pass == 0;
+                int offset = 0;
+                out.writeInt(offset);
+                for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                    offset += outgoing ? G.outDegree(v) : G.inDegree(v);
+                    out.writeInt(offset);
+                }
+                for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                    for (Graph<VLabel, ELabel>.Edge e
+                             : outgoing ? G.outEdges(v) : G.inEdges(v)) {
+                        out.writeInt(eindex[e.id()]);
+                    }
+                }
+                if (outgoing) {
+                    for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                        for (Graph<VLabel, ELabel>.Edge e : G.outEdges(v)) {
+                            out.writeInt(vindex[e.getV(v).id()]);
+                        }
+                    }
+                }
+            }
+            for (Graph<VLabel, ELabel>.Edge e : edges) {
+                out.writeInt(vindex[e.getV0().id()]);
+                out.writeInt(vindex[e.getV1().id()]);
+            }
+            for (Graph<VLabel, ELabel>.Edge e : edges) {
+                out.writeDouble(G.weight(e, eweighter));
+            }
+            long offset = 0;
+            out.writeLong(offset);
+            for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                offset += bytes(vcodec.encode(v.getLabel())).length;
+                out.writeLong(offset);
+            }
+            out.writeLong(offset);
+            for (Graph<VLabel, ELabel>.Edge e : edges) {
+                offset += bytes(ecodec.encode(e.getLabel())).length;
+                out.writeLong(offset);
+            }
+            for (Graph<VLabel, ELabel>.Vertex v : vertices) {
+                out.write(bytes(vcodec.encode(v.getLabel())));
+            }
+            for (Graph<VLabel, ELabel>.Edge e : edges) {
+                out.write(bytes(ecodec.encode(e.getLabel())));
+            }
+        }
+    }
+
+    /** Returns the graph saved by write in FILE, decoding its labels with
+     *  VCODEC and ECODEC.  Throws IOException if FILE cannot be read, was
+     *  not written by write, or is too short for the counts in its
+     *  header. */
+    public static <VLabel, ELabel> MappedGraph<VLabel, ELabel>
+    open(File file, LabelCodec<VLabel> vcodec, LabelCodec<ELabel> ecodec)
+        throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("truncated graph file");
+            }
+            Header header = new Header(channel.map(
+                FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE));
+            long n = header.vertexCount, m = header.edgeCount;
+            long[] sizes = {
+                4 * (n + 1), 4L * header.outCount, 4L * header.outCount,
+                4 * (n + 1), 4L * header.inCount, 8 * m, 8 * m,
+                8 * (n + 1), 8 * (m + 1), header.textSize
+            };
+            Region[] sections = new Region[sizes.length];
+            long position = HEADER_SIZE;
+            for (int i = 0; i < sizes.length; i += 1) {
+                if (position + sizes[i] > channel.size()) {
+                    throw new IOException("truncated graph file");
+                }
+                sections[i] = new Region(channel, position, sizes[i]);
+                position += sizes[i];
+            }
+            return new MappedGraph<VLabel, ELabel>(header, sections,
+                                                   vcodec, ecodec);
+        }
+    }
+
+    /** Returns a weighting that, when passed to the searches in this
+     *  package together with me, gives each edge the weight stored for it
+     *  by write.  It cannot weigh labels by itself. */
+    public Weighting<ELabel> weighting() {
+        return _weighting;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexCount;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeCount;
+    }
+
+    @Override
+    public int outDegree(Vertex v) {
+        return _outOffsets.getInt(v.id() + 1) - _outOffsets.getInt(v.id());
+    }
+
+    @Override
+    public int inDegree(Vertex v) {
+        return _inOffsets.getInt(v.id() + 1) - _inOffsets.getInt(v.id());
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v) {
+        int end = _outOffsets.getInt(u.id() + 1);
+        for (int k = _outOffsets.getInt(u.id()); k < end; k += 1) {
+            if (_outTargets.getInt(k) == v.id()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Vertex u, Vertex v, ELabel label) {
+        int end = _outOffsets.getInt(u.id() + 1);
+        for (int k = _outOffsets.getInt(u.id()); k < end; k += 1) {
+            if (_outTargets.getInt(k) == v.id()
+                && edge(_outEdges.getInt(k)).getLabel().equals(label)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Vertex add(VLabel label) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public Edge add(Vertex from, Vertex to, ELabel label) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public void remove(Vertex v) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    public void remove(Edge e) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    void removeAll(Collection<? extends Edge> edges) {
+        throw new UnsupportedOperationException("graph is read-only");
+    }
+
+    @Override
+    double weight(Edge e, Weighting<? super ELabel> eweighter) {
+        if (eweighter == _weighting) {
+            return _weights.getDouble(e.id());
+        }
+        return eweighter.weight(e.getLabel());
+    }
+
+    @Override
+    int vertexIdBound() {
+        return _vertexCount;
+    }
+
+    @Override
+    int edgeIdBound() {
+        return _edgeCount;
+    }
+
+    @Override
+    Vertex vertex(int id) {
+        if (id < 0 || id >= _vertexCount) {
+            return null;
+        }
+        Vertex v = _vertices.get(id);
+        if (v == null) {
+            _vertices.compareAndSet(id, null, new MappedVertex(id));
+            v = _vertices.get(id);
+        }
+        return v;
+    }
+
+    @Override
+    Edge edge(int id) {
+        if (id < 0 || id >= _edgeCount) {
+            return null;
+        }
+        Edge e = _edges.get(id);
+        if (e == null) {
+            Vertex v0 = vertex(_ends.getInt(2 * id)),
+                v1 = vertex(_ends.getInt(2 * id + 1));
+            _edges.compareAndSet(id, null, new MappedEdge(v0, v1, id));
+            e = _edges.get(id);
+        }
+        return e;
+    }
+
+    /** Returns the Kth outgoing edge of V. */
+    @Override
+    Edge outEdge(Vertex v, int k) {
+        return edge(_outEdges.getInt(_outOffsets.getInt(v.id()) + k));
+    }
+
+    /** Returns the Kth incoming edge of V. */
+    @Override
+    Edge inEdge(Vertex v, int k) {
+        return edge(_inEdges.getInt(_inOffsets.getInt(v.id()) + k));
+    }
+
+    @Override
+    public Iteration<Vertex> vertices() {
+        return new Iteration<Vertex>() {
+            @Override
+            public boolean hasNext() {
+                return _next < _vertexCount;
+            }
+
+            @Override
+            public Vertex next() {
+                _next += 1;
+                return vertex(_next - 1);
+            }
+
+            /** Id of the next vertex. */
+            private int _next;
+        };
+    }
+
+    @Override
+    public Iteration<Edge> edges() {
+        return new Iteration<Edge>() {
+            @Override
+            public boolean hasNext() {
+                return _next < _edgeCount;
+            }
+
+            @Override
+            public Edge next() {
+                _next += 1;
+                return edge(_edgeOrder == null ? _next - 1
+                            : _edgeOrder[_next - 1]);
+            }
+
+            /** Position of the next edge. */
+            private int _next;
+        };
+    }
+
+    @Override
+    public Iteration<Edge> outEdges(Vertex v) {
+        return new EdgeRange(_outEdges, _outOffsets.getInt(v.id()),
+                             _outOffsets.getInt(v.id() + 1));
+    }
+
+    @Override
+    public Iteration<Edge> inEdges(Vertex v) {
+        return new EdgeRange(_inEdges, _inOffsets.getInt(v.id()),
+                             _inOffsets.getInt(v.id() + 1));
+    }
+
+    /** Orders edges() by COMPARATOR, and then by id, or by id alone if
+     *  COMPARATOR is null.  This decodes every edge label and keeps the
+     *  resulting order on the heap. */
+    @Override
+    public void orderEdges(Comparator<ELabel> comparator) {
+        Comparator<Edge> edgeComparator = edgeComparator(comparator);
+        if (edgeComparator == null) {
+            _edgeOrder = null;
+            return;
+        }
+        List<Edge> order = new ArrayList<Edge>(_edgeCount);
+        for (int i = 0; i < _edgeCount; i += 1) {
+            order.add(edge(i));
+        }
+        Collections.sort(order, edgeComparator);
+        int[] result = new int[_edgeCount];
+        for (int i = 0; i < _edgeCount; i += 1) {
+            result[i] = order.get(i).id();
+        }
+        _edgeOrder = result;
+    }
+
+    /** Returns TEXT encoded as UTF-8. */
+    private static byte[] bytes(String text) {
+        return text.getBytes(UTF8);
+    }
+
+    /** Returns the text in bytes START .. END-1 of _text. */
+    private String text(long start, long end) {
+        byte[] result = new byte[(int) (end - start)];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = _text.getByte(start + i);
+        }
+        return new String(result, UTF8);
+    }
+
+    /** One of my vertices, whose label is decoded when first needed. */
+    private class MappedVertex extends Vertex {
+
+        /** The vertex with id ID. */
+        MappedVertex(int id) {
+            super(null, id);
+        }
+
+        @Override
+        public VLabel getLabel() {
+            VLabel label = _decoded;
+            if (label == null) {
+                synchronized (this) {
+                    if (_decoded == null) {
+                        _decoded = _vcodec.decode(
+                            text(_vtext.getLong(id()),
+                                 _vtext.getLong(id() + 1)));
+                    }
+                    label = _decoded;
+                }
+            }
+            return label;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(getLabel());
+        }
+
+        /** My label, or null if not yet decoded. */
+        private volatile VLabel _decoded;
+    }
+
+    /** One of my edges, whose label is decoded when first needed. */
+    private class MappedEdge extends Edge {
+
+        /** The edge (V0, V1) with id ID. */
+        MappedEdge(Vertex v0, Vertex v1, int id) {
+            super(v0, v1, null, id);
+        }
+
+        @Override
+        public ELabel getLabel() {
+            ELabel label = _decoded;
+            if (label == null) {
+                synchronized (this) {
+                    if (_decoded == null) {
+                        _decoded = _ecodec.decode(
+                            text(_etext.getLong(id()),
+                                 _etext.getLong(id() + 1)));
+                    }
+                    label = _decoded;
+                }
+            }
+            return label;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(%s,%s):%s", getV0(), getV1(), getLabel());
+        }
+
+        /** My label, or null if not yet decoded. */
+        private volatile ELabel _decoded;
+    }
+
+    /** An iteration over the edges whose ids are in a range of one of my
+     *  adjacency sections. */
+    private class EdgeRange extends Iteration<Edge> {
+
+        /** An iteration over the edges whose ids are EDGES[LO .. HI-1]. */
+        EdgeRange(Region edges, int lo, int hi) {
+            _ids = edges;
+            _next = lo;
+            _hi = hi;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next < _hi;
+        }
+
+        @Override
+        public Edge next() {
+            _next += 1;
+            return edge(_ids.getInt(_next - 1));
+        }
+
+        /** The adjacency section I iterate over. */
+        private final Region _ids;
+        /** Position of the next edge. */
+        private int _next;
+        /** End of my range. */
+        private final int _hi;
+    }
+
+    /** The counts at the start of a graph file. */
+    private static class Header {
+
+        /** The header held in BUF.  Throws IOException if it is not the
+         *  header of a graph file. */
+        Header(ByteBuffer buf) throws IOException {
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("not a graph file");
+            }
+            directed = buf.getInt() != 0;
+            vertexCount = buf.getInt();
+            edgeCount = buf.getInt();
+            outCount = buf.getInt();
+            inCount = buf.getInt();
+            textSize = buf.getLong();
+            if (vertexCount < 0 || edgeCount < 0 || outCount < 0
+                || inCount < 0 || textSize < 0) {
+                throw new IOException("malformed graph file");
+            }
+        }
+
+        /** True iff the graph is directed. */
+        private final boolean directed;
+        /** Numbers of vertices, edges, outgoing and incoming adjacency
+         *  entries. */
+        private final int vertexCount, edgeCount, outCount, inCount;
+        /** Number of bytes of label text. */
+        private final long textSize;
+    }
+
+    /** A section of a file mapped into memory, as one or more buffers of
+     *  at most CHUNK bytes each, holding items whose sizes divide CHUNK. */
+    private static class Region {
+
+        /** The SIZE bytes of CHANNEL starting at POSITION. */
+        Region(FileChannel channel, long position, long size)
+            throws IOException {
+            _chunks = new ByteBuffer[(int) ((size + CHUNK - 1) / CHUNK)];
+            for (int i = 0; i < _chunks.length; i += 1) {
+                long start = (long) i * CHUNK;
+                _chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                         position + start,
+                                         Math.min(CHUNK, size - start));
+            }
+        }
+
+        /** Returns the byte at position K. */
+        byte getByte(long k) {
+            return _chunks[(int) (k / CHUNK)].get((int) (k % CHUNK));
+        }
+
+        /** Returns int number K. */
+        int getInt(long k) {
+            return _chunks[(int) (4 * k / CHUNK)].getInt((int) (4 * k % CHUNK));
+        }
+
+        /** Returns long number K. */
+        long getLong(long k) {
+            return _chunks[(int) (8 * k / CHUNK)]
+                .getLong((int) (8 * k % CHUNK));
+        }
+
+        /** Returns double number K. */
+        double getDouble(long k) {
+            return _chunks[(int) (8 * k / CHUNK)]
+                .getDouble((int) (8 * k % CHUNK));
+        }
+
+        /** The mapped buffers, in order. */
+        private final ByteBuffer[] _chunks;
+    }
+
+    /** Leading word of a graph file. */
+    private static final int MAGIC = 0x4d475231;
+    /** Size in bytes of the header of a graph file. */
+    private static final int HEADER_SIZE = 32;
+    /** Largest number of bytes mapped by one buffer. */
+    private static final long CHUNK = 1L << 30;
+    /** Encoding of label text. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** Numbers of my vertices and edges. */
+    private final int _vertexCount, _edgeCount;
+    /** Start of the outgoing edges of each vertex in _outEdges and
+     *  _outTargets, with a final entry marking the end. */
+    private final Region _outOffsets;
+    /** Ids of the outgoing edges of each vertex, grouped by vertex. */
+    private final Region _outEdges;
+    /** Ids of the far ends of the edges in _outEdges. */
+    private final Region _outTargets;
+    /** Start of the incoming edges of each vertex in _inEdges, with a final
+     *  entry marking the end. */
+    private final Region _inOffsets;
+    /** Ids of the incoming edges of each vertex, grouped by vertex. */
+    private final Region _inEdges;
+    /** Ids of the first and second end of each edge, in pairs. */
+    private final Region _ends;
+    /** Stored weight of each edge. */
+    private final Region _weights;
+    /** Start of the text of each vertex label in _text, with a final entry
+     *  marking the end. */
+    private final Region _vtext;
+    /** Start of the text of each edge label in _text, with a final entry
+     *  marking the end. */
+    private final Region _etext;
+    /** Encoded labels of vertices and then edges. */
+    private final Region _text;
+    /** Decodes my vertex labels. */
+    private final LabelCodec<VLabel> _vcodec;
+    /** Decodes my edge labels. */
+    private final LabelCodec<ELabel> _ecodec;
+    /** My vertices by id, each created when first needed. */
+    private final AtomicReferenceArray<Vertex> _vertices;
+    /** My edges by id, each created when first needed. */
+    private final AtomicReferenceArray<Edge> _edges;
+    /** Weighting standing for my stored edge weights. */
+    private final Weighting<ELabel> _weighting;
+    /** Ids of my edges in the order delivered by edges(), or null for id
+     *  order. */
+    private volatile int[] _edgeOrder;
+
+}
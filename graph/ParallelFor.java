@@ -0,0 +1,48 @@
+package graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** An operation on each integer in a range [0, N), applied in parallel
+ *  by recursively splitting the range across the common ForkJoinPool.
+ *  Subclasses define apply, which may be called concurrently from several
+ *  threads.
+ *  @author Aleks Kamko
+ */
+abstract class ParallelFor {
+
+    /** Performs the operation on index I. */
+    abstract void apply(int i);
+
+    /** Applies the operation to every index in [0, N), returning when all
+     *  are done.  Unchecked exceptions thrown by apply are rethrown. */
+    void run(int n) {
+        if (n > 0) {
+            ForkJoinPool.commonPool().invoke(new Task(0, n));
+        }
+    }
+
+    /** The part of a run over [lo, hi). */
+    private class Task extends RecursiveAction {
+
+        /** A task over [LO, HI). */
+        Task(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo == 1) {
+                apply(_lo);
+            } else {
+                int mid = (_lo + _hi) >>> 1;
+                invokeAll(new Task(_lo, mid), new Task(mid, _hi));
+            }
+        }
+
+        /** Bounds of my range. */
+        private final int _lo, _hi;
+    }
+
+}
@@ -0,0 +1,229 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/** Reusable bookkeeping for a best-first search over a graph whose vertices
+ *  have dense ids: tentative distances, parent edges, closed flags, and the
+ *  open set.  Entries are validated lazily by a query epoch, so starting a
+ *  new search costs time proportional to the vertices the previous search
+ *  left in its open set, not to the size of the graph.  VLABEL and ELABEL
+ *  are the label types of the graph searched.
+ *  @author Aleks Kamko
+ */
+class SearchState<VLabel, ELabel> {
+
+    /** An empty SearchState with room for ids in [0, CAPACITY). */
+    SearchState(int capacity) {
+        capacity = Math.max(capacity, 1);
+        _stamp = new int[capacity];
+        _closed = new int[capacity];
+        _dist = new double[capacity];
+        _parents = newEdgeArray(capacity);
+        _vertices = newVertexArray(capacity);
+        _open = new IndexedHeap(capacity);
+        _reached = new int[capacity];
+        _epoch = 0;
+    }
+
+    /** Begins a new search over a graph whose ids are all less than BOUND,
+     *  forgetting the results of any previous search.  My arrays grow here
+     *  as needed, so I may be reused for a graph larger than the one I was
+     *  made for; they never shrink. */
+    void start(int bound) {
+        ensureCapacity(bound);
+        _open.clear();
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            Arrays.fill(_closed, 0);
+            _epoch = 0;
+        }
+        _epoch += 1;
+    }
+
+    /** Returns true iff the vertex with id ID has been reached in the
+     *  current search. */
+    boolean isReached(int id) {
+        return _stamp[id] == _epoch;
+    }
+
+    /** Returns the tentative distance to the vertex with id ID in the
+     *  current search, or Double.POSITIVE_INFINITY if it is unreached. */
+    double dist(int id) {
+        return _stamp[id] == _epoch ? _dist[id] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the edge by which the vertex with id ID was last reached in
+     *  the current search, or null if none. */
+    Graph<VLabel, ELabel>.Edge parent(int id) {
+        return _stamp[id] == _epoch ? _parents[id] : null;
+    }
+
+    /** Returns the vertex with id ID, which must have been reached in the
+     *  current search. */
+    Graph<VLabel, ELabel>.Vertex vertex(int id) {
+        return _vertices[id];
+    }
+
+    /** Records that V is reached at distance DIST by edge PARENT (null for
+     *  a source), and puts it in the open set with priority KEY. */
+    void open(Graph<VLabel, ELabel>.Vertex v, double dist,
+              Graph<VLabel, ELabel>.Edge parent, double key) {
+        int id = v.id();
+        if (_stamp[id] != _epoch) {
+            if (_reachedCount == _reached.length) {
+                _reached = Arrays.copyOf(_reached, 2 * _reached.length);
+            }
+            _reached[_reachedCount] = id;
+            _reachedCount += 1;
+        }
+        _stamp[id] = _epoch;
+        _dist[id] = dist;
+        _parents[id] = parent;
+        _vertices[id] = v;
+        _closed[id] = 0;
+        _open.put(id, key);
+    }
+
+    /** Returns true iff the open set is empty. */
+    boolean isOpenEmpty() {
+        return _open.isEmpty();
+    }
+
+    /** Returns the number of vertices in the open set. */
+    int openSize() {
+        return _open.size();
+    }
+
+    /** Returns the least priority in the open set, which must not be
+     *  empty. */
+    double minKey() {
+        return _open.peekKey();
+    }
+
+    /** Removes a vertex of least priority from the open set, marks it
+     *  closed, and returns its id. */
+    int close() {
+        int id = _open.poll();
+        _closed[id] = _epoch;
+        return id;
+    }
+
+    /** Returns true iff the vertex with id ID has been closed in the current
+     *  search and not reopened since. */
+    boolean isClosed(int id) {
+        return _closed[id] == _epoch;
+    }
+
+    /** Returns the edges by which the current search reached the vertex V,
+     *  in order from the source. */
+    List<Graph<VLabel, ELabel>.Edge> pathTo(Graph<VLabel, ELabel>.Vertex v) {
+        LinkedList<Graph<VLabel, ELabel>.Edge> path =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        Graph<VLabel, ELabel>.Edge edge = parent(v.id());
+        while (edge != null) {
+            path.addFirst(edge);
+            v = edge.getV(v);
+            edge = parent(v.id());
+        }
+        return path;
+    }
+
+    /** Returns a second SearchState over the same graph, used for the
+     *  opposite direction of a bidirectional search.  It is created on
+     *  first use and is the same on every call. */
+    SearchState<VLabel, ELabel> partner() {
+        if (_partner == null) {
+            _partner = new SearchState<VLabel, ELabel>(_stamp.length);
+        }
+        return _partner;
+    }
+
+    /** Returns an edge cursor over G kept for the searches using me, so
+     *  that they need not allocate one. */
+    EdgeCursor<VLabel, ELabel> cursor(Graph<VLabel, ELabel> G) {
+        if (_cursor == null || _cursor.graph() != G) {
+            _cursor = new EdgeCursor<VLabel, ELabel>(G);
+        }
+        return _cursor;
+    }
+
+    /** Drops my references to the vertices and edges reached since I was
+     *  last cleared, and those of my partner and cursor, so that I no
+     *  longer keep the graph last searched reachable.  Takes time
+     *  proportional to the number of vertices reached.  The results of
+     *  the current search are lost. */
+    void clear() {
+        for (int i = 0; i < _reachedCount; i += 1) {
+            _parents[_reached[i]] = null;
+            _vertices[_reached[i]] = null;
+        }
+        _reachedCount = 0;
+        _open.clear();
+        if (_epoch == Integer.MAX_VALUE) {
+            Arrays.fill(_stamp, 0);
+            Arrays.fill(_closed, 0);
+            _epoch = 0;
+        }
+        _epoch += 1;
+        _cursor = null;
+        if (_partner != null) {
+            _partner.clear();
+        }
+    }
+
+    /** Makes room for ids in [0, CAPACITY). */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= _stamp.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, 2 * _stamp.length);
+        _stamp = Arrays.copyOf(_stamp, newLength);
+        _closed = Arrays.copyOf(_closed, newLength);
+        _dist = Arrays.copyOf(_dist, newLength);
+        _parents = Arrays.copyOf(_parents, newLength);
+        _vertices = Arrays.copyOf(_vertices, newLength);
+        _open.ensureCapacity(newLength);
+    }
+
+    /** Returns a new array of N edges. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Edge[] newEdgeArray(int n) {
+        return (Graph<VLabel, ELabel>.Edge[]) new Graph.Edge[n];
+    }
+
+    /** Returns a new array of N vertices. */
+    @SuppressWarnings("unchecked")
+    private Graph<VLabel, ELabel>.Vertex[] newVertexArray(int n) {
+        return (Graph<VLabel, ELabel>.Vertex[]) new Graph.Vertex[n];
+    }
+
+    /** Number of the current search.  Entries stamped with an older epoch
+     *  are stale. */
+    private int _epoch;
+    /** _stamp[id] is the epoch in which _dist[id], _parents[id], and
+     *  _vertices[id] were last set. */
+    private int[] _stamp;
+    /** _closed[id] is the epoch in which vertex id was last closed. */
+    private int[] _closed;
+    /** Tentative distances, indexed by vertex id. */
+    private double[] _dist;
+    /** Edges by which vertices were reached, indexed by vertex id. */
+    private Graph<VLabel, ELabel>.Edge[] _parents;
+    /** Reached vertices, indexed by id. */
+    private Graph<VLabel, ELabel>.Vertex[] _vertices;
+    /** _reached[0 .. _reachedCount-1] are the ids whose entries in
+     *  _parents and _vertices have been set since I was last cleared
+     *  (possibly with repeats). */
+    private int[] _reached;
+    /** Number of valid entries in _reached. */
+    private int _reachedCount;
+    /** The open set. */
+    private final IndexedHeap _open;
+    /** State for the opposite search direction, or null if not needed. */
+    private SearchState<VLabel, ELabel> _partner;
+    /** Cursor over the edges of the graph last searched, or null. */
+    private EdgeCursor<VLabel, ELabel> _cursor;
+
+}
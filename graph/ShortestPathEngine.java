@@ -0,0 +1,72 @@
+package graph;
+
+import java.util.List;
+
+/** Answers shortest-path queries on a fixed graph.  Unlike
+ *  Graphs.shortestPath, an engine never modifies the labels of the graph:
+ *  all intermediate distances are kept in search state private to the
+ *  calling thread, so any number of threads may query one engine at once.
+ *  The graph must not be modified while an engine bound to it is in use.
+ *  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class ShortestPathEngine<VLabel, ELabel> {
+
+    /** An engine answering queries on G, taking the weight of each edge
+     *  from its label according to EWEIGHTER. */
+    public ShortestPathEngine(Graph<VLabel, ELabel> G,
+                              Weighting<? super ELabel> eweighter) {
+        _graph = G;
+        _eweighter = eweighter;
+        _states = new ThreadLocal<SearchState<VLabel, ELabel>>() {
+            @Override
+            protected SearchState<VLabel, ELabel> initialValue() {
+                return new SearchState<VLabel, ELabel>(
+                    _graph.vertexIdBound());
+            }
+        };
+    }
+
+    /** Returns the graph I search. */
+    public Graph<VLabel, ELabel> graph() {
+        return _graph;
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, or null if V1 is
+     *  unreachable from V0.  H must satisfy the same conditions as for
+     *  Graphs.shortestPath, whose result this is identical to. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    shortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                 Graph<VLabel, ELabel>.Vertex V1,
+                 Distancer<? super VLabel> h) {
+        return Graphs.aStar(_graph, V0, V1, h, null, _eweighter,
+                            _states.get());
+    }
+
+    /** Returns a path from V0 to V1 of minimum weight, or null if V1 is
+     *  unreachable from V0, using a bidirectional search as described for
+     *  Graphs.bidirectionalShortestPath.  H must satisfy the conditions
+     *  given there. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    bidirectionalShortestPath(Graph<VLabel, ELabel>.Vertex V0,
+                              Graph<VLabel, ELabel>.Vertex V1,
+                              Distancer<? super VLabel> h) {
+        return Graphs.bidirectionalAStar(_graph, V0, V1, h, _eweighter,
+                                         _states.get());
+    }
+
+    /** Returns the tree of minimal paths from SOURCE to every vertex. */
+    public ShortestPathTree<VLabel, ELabel>
+    shortestPathTree(Graph<VLabel, ELabel>.Vertex source) {
+        return Graphs.shortestPathTree(_graph, source, _eweighter,
+                                       _states.get());
+    }
+
+    /** The graph I search. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** Determines the weights of edges from their labels. */
+    private final Weighting<? super ELabel> _eweighter;
+    /** Search state of each thread using me. */
+    private final ThreadLocal<SearchState<VLabel, ELabel>> _states;
+
+}
@@ -0,0 +1,86 @@
+package graph;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/** The minimal paths from one source vertex to every vertex of a graph, as
+ *  computed by Graphs.shortestPathTree.  Distances and the ids of the last
+ *  edge of each path are kept in arrays indexed by vertex id, so looking
+ *  up a distance takes constant time and extracting a path takes time
+ *  proportional to its length.  The tree reflects the graph at the time it
+ *  was computed, and its paths are valid only as long as no edge of the
+ *  graph is removed.  VLABEL and ELABEL are the types of vertex and edge
+ *  labels.
+ *  @author Aleks Kamko
+ */
+public class ShortestPathTree<VLabel, ELabel> {
+
+    /** The tree in G rooted at SOURCE whose distances and parent edges
+     *  are those held in STATE after a complete search of G. */
+    ShortestPathTree(Graph<VLabel, ELabel> G,
+                     Graph<VLabel, ELabel>.Vertex source,
+                     SearchState<VLabel, ELabel> state) {
+        int bound = G.vertexIdBound();
+        _graph = G;
+        _source = source;
+        _dist = new double[bound];
+        _parents = new int[bound];
+        for (int id = 0; id < bound; id += 1) {
+            Graph<VLabel, ELabel>.Edge e = state.parent(id);
+            _dist[id] = state.dist(id);
+            _parents[id] = e == null ? -1 : e.id();
+        }
+    }
+
+    /** Returns the source vertex of this tree. */
+    public Graph<VLabel, ELabel>.Vertex source() {
+        return _source;
+    }
+
+    /** Returns the weight of a minimal path from source() to V, or
+     *  Double.POSITIVE_INFINITY if V is unreachable. */
+    public double distance(Graph<VLabel, ELabel>.Vertex v) {
+        return v.id() < _dist.length
+            ? _dist[v.id()] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns true iff V is reachable from source(). */
+    public boolean isReachable(Graph<VLabel, ELabel>.Vertex v) {
+        return distance(v) != Double.POSITIVE_INFINITY;
+    }
+
+    /** Returns the last edge of a minimal path from source() to V, or null
+     *  if V is the source or unreachable. */
+    public Graph<VLabel, ELabel>.Edge parent(Graph<VLabel, ELabel>.Vertex v) {
+        return v.id() < _parents.length && _parents[v.id()] >= 0
+            ? _graph.edge(_parents[v.id()]) : null;
+    }
+
+    /** Returns the edges of a minimal path from source() to V, or null if V
+     *  is unreachable. */
+    public List<Graph<VLabel, ELabel>.Edge>
+    pathTo(Graph<VLabel, ELabel>.Vertex v) {
+        if (!isReachable(v)) {
+            return null;
+        }
+        LinkedList<Graph<VLabel, ELabel>.Edge> path =
+            new LinkedList<Graph<VLabel, ELabel>.Edge>();
+        for (Graph<VLabel, ELabel>.Edge e = parent(v); e != null;
+             e = parent(v)) {
+            path.addFirst(e);
+            v = e.getV(v);
+        }
+        return path;
+    }
+
+    /** The graph searched. */
+    private final Graph<VLabel, ELabel> _graph;
+    /** The root of this tree. */
+    private final Graph<VLabel, ELabel>.Vertex _source;
+    /** Distances from _source, indexed by vertex id. */
+    private final double[] _dist;
+    /** Id of the last edge of a minimal path from _source, indexed by
+     *  vertex id, or -1 if none. */
+    private final int[] _parents;
+
+}
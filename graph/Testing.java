@@ -5,12 +5,26 @@ import ucb.junit.textui;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 
 import java.util.Comparator;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 /* You MAY add public @Test methods to this class.  You may also add
  * additional public classes containing "Testing" in their name. These
  * may not be part of your graph package per se (that is, it must be
@@ -179,6 +193,48 @@ public class Testing {
         }
     }
 
+    @Test
+    public void sortedViewsFollowChanges() {
+        DirectedGraph<Integer, Integer> g =
+            new DirectedGraph<Integer, Integer>();
+        Integer[] vLabels = new Integer[]{ 5, 3, 8, 1, 9, 0 };
+        List<Graph<Integer, Integer>.Vertex> vlist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < vLabels.length; i += 1) {
+            vlist.add(g.add(vLabels[i]));
+        }
+        g.orderEdges(Graph.<Integer>naturalOrder());
+        for (int i = 0; i < vLabels.length; i += 1) {
+            g.add(vlist.get(i), vlist.get((i + 1) % vLabels.length),
+                  vLabels[i]);
+        }
+        assertSorted(g.vertices(), g.edges());
+
+        g.remove(vlist.get(2));
+        Graph<Integer, Integer>.Vertex v = g.add(4);
+        g.add(v, vlist.get(0), 2);
+        g.add(vlist.get(0), v, 7);
+        assertEquals("Wrong vertex count", 6, g.vertexSize());
+        assertEquals("Wrong edge count", 6, g.edgeSize());
+        assertSorted(g.vertices(), g.edges());
+    }
+
+    /** Asserts that VERTICES and EDGES deliver labels in ascending order. */
+    private static void assertSorted(
+            Iteration<Graph<Integer, Integer>.Vertex> vertices,
+            Iteration<Graph<Integer, Integer>.Edge> edges) {
+        int last = Integer.MIN_VALUE;
+        for (Graph<Integer, Integer>.Vertex v : vertices) {
+            assertTrue("Vertices not in order", last <= v.getLabel());
+            last = v.getLabel();
+        }
+        last = Integer.MIN_VALUE;
+        for (Graph<Integer, Integer>.Edge e : edges) {
+            assertTrue("Edges not in order", last <= e.getLabel());
+            last = e.getLabel();
+        }
+    }
+
     @Test
     public void removeEdge() {
         UndirectedGraph<Integer, Integer> g =
@@ -248,6 +304,752 @@ public class Testing {
         assertEquals("Graph did not remove edges", 0, g.edgeSize());
     }
 
+    @Test
+    public void denseIds() {
+        DirectedGraph<Integer, Integer> g =
+            new DirectedGraph<Integer, Integer>();
+        List<Graph<Integer, Integer>.Vertex> vlist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 5; i += 1) {
+            vlist.add(g.add(i));
+            assertEquals("Vertex ids not dense", i, g.id(vlist.get(i)));
+            assertTrue("Wrong vertex for id", g.vertex(i) == vlist.get(i));
+        }
+        Graph<Integer, Integer>.Edge e0 = g.add(vlist.get(0), vlist.get(1), 0);
+        Graph<Integer, Integer>.Edge e1 = g.add(vlist.get(1), vlist.get(2), 1);
+        assertEquals("Edge ids not dense", 1, g.id(e1));
+        assertTrue("Wrong edge for id", g.edge(g.id(e0)) == e0);
+
+        g.remove(e0);
+        assertNull("Removed edge still has id", g.edge(0));
+        g.remove(e0);
+        assertEquals("Removing an absent edge changed the graph",
+                     1, g.edgeSize());
+        Graph<Integer, Integer>.Edge e2 = g.add(vlist.get(3), vlist.get(4), 2);
+        assertEquals("Edge id not reused", 0, g.id(e2));
+
+        g.remove(vlist.get(2));
+        assertNull("Removed vertex still has id", g.vertex(2));
+        assertNull("Removed edge still has id", g.edge(1));
+        Graph<Integer, Integer>.Vertex v = g.add(7);
+        assertEquals("Vertex id not reused", 2, g.id(v));
+        assertEquals("Id bound grew", 5, g.vertexIdBound());
+        assertEquals("Wrong vertex count", 5, g.vertexSize());
+    }
+
+    @Test
+    public void bulkRemoval() {
+        checkRemoval(new DirectedGraph<Integer, Integer>(), 11);
+        checkRemoval(new UndirectedGraph<Integer, Integer>(), 12);
+    }
+
+    /** Removes edges and vertices from G, a random multigraph with self
+     *  edges generated from SEED, singly and in batches, checking its
+     *  adjacency lists after each step. */
+    private static void checkRemoval(Graph<Integer, Integer> g, long seed) {
+        Random rand = new Random(seed);
+        List<Graph<Integer, Integer>.Vertex> vlist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        List<Graph<Integer, Integer>.Edge> elist =
+            new ArrayList<Graph<Integer, Integer>.Edge>();
+        for (int i = 0; i < 20; i += 1) {
+            vlist.add(g.add(i));
+        }
+        for (int i = 0; i < 200; i += 1) {
+            elist.add(g.add(vlist.get(rand.nextInt(i < 150 ? 3 : 20)),
+                            vlist.get(rand.nextInt(20)), i));
+        }
+        checkAdjacency(g, elist);
+        for (int i = 0; i < 20; i += 1) {
+            g.remove(elist.remove(rand.nextInt(elist.size())));
+        }
+        checkAdjacency(g, elist);
+        for (int step = 0; step < 4; step += 1) {
+            List<Graph<Integer, Integer>.Edge> batch =
+                new ArrayList<Graph<Integer, Integer>.Edge>();
+            for (int i = 0; i < 25; i += 1) {
+                batch.add(elist.get(rand.nextInt(elist.size())));
+            }
+            Graphs.removeAll(g, batch);
+            elist.removeAll(batch);
+            checkAdjacency(g, elist);
+        }
+        Graph<Integer, Integer>.Vertex hub = vlist.get(0);
+        g.remove(hub);
+        for (int i = elist.size() - 1; i >= 0; i -= 1) {
+            if (elist.get(i).getV0() == hub || elist.get(i).getV1() == hub) {
+                elist.remove(i);
+            }
+        }
+        checkAdjacency(g, elist);
+        g.remove(vlist.get(1), vlist.get(2));
+        for (int i = elist.size() - 1; i >= 0; i -= 1) {
+            Graph<Integer, Integer>.Edge e = elist.get(i);
+            if (e.getV0() == vlist.get(1) && e.getV1() == vlist.get(2)
+                || !g.isDirected() && e.getV0() == vlist.get(2)
+                   && e.getV1() == vlist.get(1)) {
+                elist.remove(i);
+            }
+        }
+        checkAdjacency(g, elist);
+    }
+
+    /** Asserts that the edges of G are exactly ELIST, and that each
+     *  appears in the adjacency lists of its ends as often as it should. */
+    private static void checkAdjacency(Graph<Integer, Integer> g,
+                                       List<Graph<Integer, Integer>.Edge>
+                                       elist) {
+        assertEquals("Wrong edge count", elist.size(), g.edgeSize());
+        Map<Graph<Integer, Integer>.Edge, Integer> seen =
+            new HashMap<Graph<Integer, Integer>.Edge, Integer>();
+        for (Graph<Integer, Integer>.Vertex v : g.vertices()) {
+            for (Graph<Integer, Integer>.Edge e : g.outEdges(v)) {
+                assertTrue("Adjacent edge not incident", e.getV0() == v
+                           || !g.isDirected() && e.getV1() == v);
+                seen.put(e, seen.containsKey(e) ? seen.get(e) + 1 : 1);
+            }
+            for (Graph<Integer, Integer>.Edge e : g.inEdges(v)) {
+                assertTrue("Incoming edge not incident", e.getV1() == v);
+                seen.put(e, seen.containsKey(e) ? seen.get(e) + 1 : 1);
+            }
+        }
+        assertEquals("Wrong adjacent edges", elist.size(), seen.size());
+        for (Graph<Integer, Integer>.Edge e : elist) {
+            assertEquals("Edge listed wrong number of times",
+                         (Integer) 2, seen.get(e));
+        }
+    }
+
+    @Test
+    public void containsHighDegree() {
+        checkContains(new DirectedGraph<Integer, Integer>(), 13);
+        checkContains(new UndirectedGraph<Integer, Integer>(), 14);
+    }
+
+    /** Checks contains on G, a random multigraph generated from SEED with
+     *  a few vertices of high degree, as edges are added and removed. */
+    private static void checkContains(Graph<Integer, Integer> g, long seed) {
+        Random rand = new Random(seed);
+        List<Graph<Integer, Integer>.Vertex> vlist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        List<Graph<Integer, Integer>.Edge> elist =
+            new ArrayList<Graph<Integer, Integer>.Edge>();
+        for (int i = 0; i < 100; i += 1) {
+            vlist.add(g.add(i));
+        }
+        for (int i = 0; i < 400; i += 1) {
+            elist.add(g.add(vlist.get(rand.nextInt(4)),
+                            vlist.get(rand.nextInt(100)), i % 7));
+        }
+        for (int round = 0; round < 3; round += 1) {
+            for (Graph<Integer, Integer>.Vertex u : vlist.subList(0, 4)) {
+                for (Graph<Integer, Integer>.Vertex v : vlist) {
+                    boolean any = false;
+                    boolean[] labeled = new boolean[7];
+                    for (Graph<Integer, Integer>.Edge e : elist) {
+                        if (e.getV0() == u && e.getV1() == v
+                            || !g.isDirected() && e.getV0() == v
+                               && e.getV1() == u) {
+                            any = true;
+                            labeled[e.getLabel()] = true;
+                        }
+                    }
+                    assertEquals("Wrong contains", any, g.contains(u, v));
+                    for (int k = 0; k < 7; k += 1) {
+                        assertEquals("Wrong contains with label",
+                                     labeled[k], g.contains(u, v, k));
+                    }
+                }
+            }
+            for (int i = 0; i < 120; i += 1) {
+                g.remove(elist.remove(rand.nextInt(elist.size())));
+            }
+        }
+    }
+
+    @Test
+    public void graphBuilder() {
+        Random rand = new Random(15);
+        GraphBuilder<Integer, Integer> builder =
+            new GraphBuilder<Integer, Integer>(10, 4);
+        DirectedGraph<Integer, Integer> d =
+            new DirectedGraph<Integer, Integer>();
+        UndirectedGraph<Integer, Integer> u =
+            new UndirectedGraph<Integer, Integer>();
+        List<Graph<Integer, Integer>.Vertex> dlist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        List<Graph<Integer, Integer>.Vertex> ulist =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 10; i += 1) {
+            assertEquals("Wrong vertex index", i, builder.addVertex(i));
+            dlist.add(d.add(i));
+            ulist.add(u.add(i));
+        }
+        for (int i = 0; i < 60; i += 1) {
+            int from = rand.nextInt(10), to = rand.nextInt(10);
+            builder.addEdge(from, to, i);
+            d.add(dlist.get(from), dlist.get(to), i);
+            u.add(ulist.get(from), ulist.get(to), i);
+        }
+        assertEquals("Wrong edge count", 60, builder.edgeSize());
+        checkSameGraph(d, dlist, builder.buildDirected(), builder);
+        checkSameGraph(u, ulist, builder.buildUndirected(), builder);
+    }
+
+    /** Asserts that BUILT, made by BUILDER, has the same vertices, edges
+     *  and adjacency lists as G, whose vertices in order of addition are
+     *  VLIST. */
+    private static void checkSameGraph(Graph<Integer, Integer> g,
+        List<Graph<Integer, Integer>.Vertex> vlist,
+        Graph<Integer, Integer> built, GraphBuilder<Integer, Integer> builder) {
+        assertEquals("Wrong vertex count", g.vertexSize(), built.vertexSize());
+        assertEquals("Wrong edge count", g.edgeSize(), built.edgeSize());
+        for (int i = 0; i < vlist.size(); i += 1) {
+            Graph<Integer, Integer>.Vertex v = vlist.get(i),
+                b = builder.vertex(i);
+            assertEquals("Wrong label", v.getLabel(), b.getLabel());
+            assertEquals("Wrong out-edges", labels(g.outEdges(v)),
+                         labels(built.outEdges(b)));
+            assertEquals("Wrong in-edges", labels(g.inEdges(v)),
+                         labels(built.inEdges(b)));
+        }
+    }
+
+    /** Returns the labels of EDGES, in order. */
+    private static List<Integer>
+    labels(Iteration<Graph<Integer, Integer>.Edge> edges) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (Graph<Integer, Integer>.Edge e : edges) {
+            result.add(e.getLabel());
+        }
+        return result;
+    }
+
+    @Test
+    public void versionedGraph() {
+        VersionedGraph<Integer, Integer> vg =
+            new VersionedGraph<Integer, Integer>(true);
+        GraphVersion<Integer, Integer> draft = vg.edit();
+        Graph<Integer, Integer>.Vertex a = draft.add(0), b = draft.add(1);
+        Graph<Integer, Integer>.Edge ab = draft.add(a, b, 10);
+        assertEquals("Draft visible before commit", 0,
+                     vg.current().vertexSize());
+        draft.commit();
+        GraphVersion<Integer, Integer> v1 = vg.current();
+        assertTrue("Wrong version", v1 == draft && v1.number() == 1);
+
+        GraphVersion<Integer, Integer> draft2 = vg.edit();
+        draft2.remove(ab);
+        Graph<Integer, Integer>.Vertex c = draft2.add(2);
+        draft2.add(b, c, 11);
+        assertTrue("Draft changed its base", v1.contains(a, b));
+        draft2.commit();
+        GraphVersion<Integer, Integer> v2 = vg.current();
+        assertEquals("Pinned version changed", 2, v1.vertexSize());
+        assertEquals("Pinned version changed", 1, v1.edgeSize());
+        assertTrue("Pinned version changed", v1.contains(a, b, 10));
+        assertFalse("Edge not removed", v2.contains(a, b));
+        assertTrue("Edge not added", v2.contains(b, c, 11));
+        assertEquals("Wrong in-degree", 1, v2.inDegree(c));
+        assertEquals("Vertices should be shared", Arrays.asList(a, b, c),
+                     vertexList(v2));
+
+        try {
+            v2.add(3);
+            fail("Published version should be read-only");
+        } catch (UnsupportedOperationException e) {
+            /* Expected. */
+        }
+        GraphVersion<Integer, Integer> d0 = vg.edit(), d1 = vg.edit();
+        d0.remove(c);
+        d1.add(4);
+        d0.commit();
+        try {
+            d1.commit();
+            fail("Conflicting commit should fail");
+        } catch (ConcurrentModificationException e) {
+            /* Expected. */
+        }
+        assertTrue("Wrong current version", vg.current() == d0);
+        assertEquals("Vertex not removed", 2, d0.vertexSize());
+        assertEquals("Edges of vertex not removed", 0, d0.edgeSize());
+        assertEquals("Pinned version changed", 1, v2.outDegree(b));
+    }
+
+    @Test
+    public void versionedGraphMatchesMutableGraph() {
+        Random rand = new Random(17);
+        for (int k = 0; k < 2; k += 1) {
+            boolean directed = k == 0;
+            VersionedGraph<Integer, Integer> vg =
+                new VersionedGraph<Integer, Integer>(directed);
+            Graph<Integer, Integer> g;
+            if (directed) {
+                g = new DirectedGraph<Integer, Integer>();
+            } else {
+                g = new UndirectedGraph<Integer, Integer>();
+            }
+            List<Graph<Integer, Integer>.Vertex> gv =
+                new ArrayList<Graph<Integer, Integer>.Vertex>(),
+                vv = new ArrayList<Graph<Integer, Integer>.Vertex>();
+            Map<Integer, Graph<Integer, Integer>.Edge> ge =
+                new HashMap<Integer, Graph<Integer, Integer>.Edge>(),
+                ve = new HashMap<Integer, Graph<Integer, Integer>.Edge>();
+            GraphVersion<Integer, Integer> draft = vg.edit();
+            for (int i = 0; i < 150; i += 1) {
+                gv.add(g.add(i));
+                vv.add(draft.add(i));
+            }
+            int label = 0;
+            for (int batch = 0; batch < 40; batch += 1) {
+                for (int i = 0; i < 30; i += 1) {
+                    if (rand.nextInt(3) > 0 || ge.isEmpty()) {
+                        int from = rand.nextInt(gv.size()),
+                            to = rand.nextInt(gv.size());
+                        ge.put(label, g.add(gv.get(from), gv.get(to), label));
+                        ve.put(label, draft.add(vv.get(from), vv.get(to),
+                                                label));
+                        label += 1;
+                    } else {
+                        int l = new ArrayList<Integer>(ge.keySet())
+                            .get(rand.nextInt(ge.size()));
+                        g.remove(ge.remove(l));
+                        draft.remove(ve.remove(l));
+                    }
+                }
+                draft.commit();
+                draft = vg.edit();
+            }
+            GraphVersion<Integer, Integer> current = vg.current();
+            assertEquals("Wrong edge count", g.edgeSize(), current.edgeSize());
+            for (int i = 0; i < gv.size(); i += 1) {
+                assertEquals("Wrong out-edges", sortedLabels(g.outEdges(
+                    gv.get(i))), sortedLabels(current.outEdges(vv.get(i))));
+                assertEquals("Wrong in-edges", sortedLabels(g.inEdges(
+                    gv.get(i))), sortedLabels(current.inEdges(vv.get(i))));
+            }
+        }
+    }
+
+    @Test
+    public void versionedGraphListeners() {
+        for (int k = 0; k < 2; k += 1) {
+            VersionedGraph<Integer, Integer> vg =
+                new VersionedGraph<Integer, Integer>(k == 0);
+            GraphVersion<Integer, Integer> draft = vg.edit();
+            Graph<Integer, Integer>.Vertex a = draft.add(1), b = draft.add(2),
+                c = draft.add(3);
+            draft.commit();
+            draft = vg.edit();
+            ComponentIndex<Integer, Integer> index =
+                new ComponentIndex<Integer, Integer>(draft);
+            Graph<Integer, Integer>.Edge ab = draft.add(a, b, 0);
+            draft.add(a, a, 1);
+            draft.add(c, c, 2);
+            Graph<Integer, Integer>.Edge ca = draft.add(c, a, 3);
+            assertTrue("index should see added edges",
+                       index.connected(b, c));
+            draft.remove(ab);
+            assertEquals("Wrong out-degree", k == 0 ? 1 : 3,
+                         draft.outDegree(a));
+            assertTrue("index should see removed edges",
+                       !index.connected(b, c));
+            draft.remove(ca);
+            draft.remove(a);
+            assertEquals("index should see removed vertices", 2,
+                         index.componentCount());
+            assertEquals("Wrong out-degree", k == 0 ? 1 : 2,
+                         draft.outDegree(c));
+            draft.commit();
+            index.close();
+        }
+    }
+
+    @Test
+    public void versionedGraphConcurrent() throws InterruptedException {
+        final VersionedGraph<Integer, Integer> vg =
+            new VersionedGraph<Integer, Integer>(true);
+        GraphVersion<Integer, Integer> draft = vg.edit();
+        List<Graph<Integer, Integer>.Vertex> verts =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 100; i += 1) {
+            verts.add(draft.add(i));
+        }
+        draft.commit();
+        final boolean[] ok = { true };
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    GraphVersion<Integer, Integer> version = vg.current();
+                    int total = 0;
+                    for (Graph<Integer, Integer>.Vertex v
+                             : version.vertices()) {
+                        total += version.outDegree(v);
+                    }
+                    ok[0] &= total == version.edgeSize()
+                        && version.edgeSize() == 2 * version.number() - 2;
+                }
+            }
+        };
+        reader.start();
+        Random rand = new Random(18);
+        for (int i = 0; i < 2000; i += 1) {
+            draft = vg.edit();
+            for (int j = 0; j < 2; j += 1) {
+                draft.add(verts.get(rand.nextInt(100)),
+                          verts.get(rand.nextInt(100)), i);
+            }
+            draft.commit();
+        }
+        done.set(true);
+        reader.join();
+        assertTrue("Reader saw a partly applied batch", ok[0]);
+    }
+
+    @Test
+    public void versionedGraphConcurrentRouting()
+        throws InterruptedException {
+        final VersionedGraph<Integer, Integer> vg =
+            new VersionedGraph<Integer, Integer>(true);
+        GraphVersion<Integer, Integer> draft = vg.edit();
+        final List<Graph<Integer, Integer>.Vertex> verts =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        Random rand = new Random(29);
+        for (int i = 0; i < 500; i += 1) {
+            verts.add(draft.add(i));
+        }
+        for (int i = 0; i < 2000; i += 1) {
+            draft.add(verts.get(rand.nextInt(500)),
+                      verts.get(rand.nextInt(500)), 1 + rand.nextInt(10));
+        }
+        draft.commit();
+        final GraphVersion<Integer, Integer> pinned = vg.current();
+        final double[] expected = new double[verts.size()];
+        for (int i = 0; i < expected.length; i += 1) {
+            expected[i] = routeWeight(pinned, verts.get(0), verts.get(i));
+        }
+
+        final AtomicInteger wrong = new AtomicInteger();
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i += 1) {
+            readers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < 10; n += 1) {
+                        for (int j = 0; j < expected.length; j += 1) {
+                            if (routeWeight(pinned, verts.get(0),
+                                            verts.get(j)) != expected[j]) {
+                                wrong.incrementAndGet();
+                            }
+                        }
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        while (!done.get()) {
+            draft = vg.edit();
+            draft.add(verts.get(rand.nextInt(500)),
+                      verts.get(rand.nextInt(500)), 1);
+            draft.commit();
+            done.set(true);
+            for (Thread t : readers) {
+                if (t.isAlive()) {
+                    done.set(false);
+                }
+            }
+        }
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertEquals("Wrong routes on a pinned version", 0, wrong.get());
+    }
+
+    /** Returns the weight of the path Graphs.shortestPath finds from V0 to
+     *  V1 in G, weighting edges by their labels, or -1 if there is none. */
+    private static double routeWeight(Graph<Integer, Integer> g,
+                                      Graph<Integer, Integer>.Vertex v0,
+                                      Graph<Integer, Integer>.Vertex v1) {
+        List<Graph<Integer, Integer>.Edge> path =
+            Graphs.shortestPath(g, v0, v1, Graphs.ZERO_DISTANCER,
+                                NO_WEIGHTER, LABEL_WEIGHTING);
+        if (path == null) {
+            return -1;
+        }
+        double result = 0;
+        for (Graph<Integer, Integer>.Edge e : path) {
+            result += e.getLabel();
+        }
+        return result;
+    }
+
+    @Test
+    public void concurrentGraphs() throws InterruptedException {
+        checkConcurrentBuild(new ConcurrentDirectedGraph<Integer, Integer>());
+        checkConcurrentBuild(
+            new ConcurrentUndirectedGraph<Integer, Integer>());
+    }
+
+    /** Adds vertices and then edges to G from several threads at once,
+     *  removing some of the edges as they go, and checks that G holds
+     *  exactly the vertices and edges that remain. */
+    private static void checkConcurrentBuild(final Graph<Integer, Integer> g)
+        throws InterruptedException {
+        final int nthreads = 8, nverts = 200, nedges = 1000;
+        final List<List<Graph<Integer, Integer>.Vertex>> verts =
+            new ArrayList<List<Graph<Integer, Integer>.Vertex>>();
+        final List<List<Graph<Integer, Integer>.Edge>> edges =
+            new ArrayList<List<Graph<Integer, Integer>.Edge>>();
+        Thread[] threads = new Thread[nthreads];
+        for (int i = 0; i < nthreads; i += 1) {
+            final List<Graph<Integer, Integer>.Vertex> mine =
+                new ArrayList<Graph<Integer, Integer>.Vertex>();
+            final int k = i;
+            verts.add(mine);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < nverts; j += 1) {
+                        mine.add(g.add(k * nverts + j));
+                    }
+                }
+            };
+        }
+        runAll(threads);
+        final List<Graph<Integer, Integer>.Vertex> all =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (List<Graph<Integer, Integer>.Vertex> mine : verts) {
+            all.addAll(mine);
+        }
+        for (int i = 0; i < nthreads; i += 1) {
+            final List<Graph<Integer, Integer>.Edge> mine =
+                new ArrayList<Graph<Integer, Integer>.Edge>();
+            final Random rand = new Random(i);
+            final int k = i;
+            edges.add(mine);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < nedges; j += 1) {
+                        mine.add(g.add(all.get(rand.nextInt(all.size())),
+                                       all.get(rand.nextInt(all.size())),
+                                       k * nedges + j));
+                        if (rand.nextInt(4) == 0) {
+                            g.remove(mine.remove(rand.nextInt(mine.size())));
+                        }
+                    }
+                }
+            };
+        }
+        runAll(threads);
+
+        assertEquals("Wrong vertex count", nthreads * nverts, g.vertexSize());
+        assertEquals("Wrong vertex iteration", all.size(),
+                     vertexList(g).size());
+        int total = 0, degrees = 0;
+        for (List<Graph<Integer, Integer>.Edge> mine : edges) {
+            total += mine.size();
+            for (Graph<Integer, Integer>.Edge e : mine) {
+                assertTrue("Edge missing", g.contains(e.getV0(), e.getV1(),
+                                                      e.getLabel()));
+            }
+        }
+        for (Graph<Integer, Integer>.Vertex v : all) {
+            degrees += g.outDegree(v);
+        }
+        assertEquals("Wrong edge count", total, g.edgeSize());
+        assertEquals("Wrong degrees", g.isDirected() ? total : 2 * total,
+                     degrees);
+    }
+
+    /** Starts all of THREADS and waits for them to finish. */
+    private static void runAll(Thread[] threads) throws InterruptedException {
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+
+    @Test
+    public void edgeCursor() {
+        Random rand = new Random(19);
+        DirectedGraph<Integer, Integer> d =
+            new DirectedGraph<Integer, Integer>();
+        UndirectedGraph<Integer, Integer> u =
+            new UndirectedGraph<Integer, Integer>();
+        ConcurrentDirectedGraph<Integer, Integer> c =
+            new ConcurrentDirectedGraph<Integer, Integer>();
+        List<Graph<Integer, Integer>.Vertex> dv =
+            new ArrayList<Graph<Integer, Integer>.Vertex>(),
+            uv = new ArrayList<Graph<Integer, Integer>.Vertex>(),
+            cv = new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (int i = 0; i < 30; i += 1) {
+            dv.add(d.add(i));
+            uv.add(u.add(i));
+            cv.add(c.add(i));
+        }
+        for (int i = 0; i < 200; i += 1) {
+            int from = rand.nextInt(30), to = rand.nextInt(30);
+            d.add(dv.get(from), dv.get(to), i);
+            u.add(uv.get(from), uv.get(to), i);
+            c.add(cv.get(from), cv.get(to), i);
+        }
+        checkCursor(d);
+        checkCursor(u);
+        checkCursor(c);
+        checkCursor(new CsrGraph<Integer, Integer>(d));
+        GraphVersion<Integer, Integer> draft =
+            new VersionedGraph<Integer, Integer>(true).edit();
+        Graph<Integer, Integer>.Vertex a = draft.add(0), b = draft.add(1);
+        draft.add(a, b, 0);
+        draft.add(b, a, 1);
+        checkCursor(draft);
+        draft.commit();
+        checkCursor(draft);
+    }
+
+    /** Asserts that an EdgeCursor over G delivers the same edges and far
+     *  ends as the edge iterations of G, for every vertex. */
+    private static void checkCursor(Graph<Integer, Integer> g) {
+        EdgeCursor<Integer, Integer> cursor =
+            new EdgeCursor<Integer, Integer>(g);
+        for (Graph<Integer, Integer>.Vertex v : g.vertices()) {
+            cursor.outEdges(v);
+            for (Graph<Integer, Integer>.Edge e : g.outEdges(v)) {
+                assertTrue("Cursor ended early", cursor.hasNext());
+                assertEquals("Wrong edge id", e.id(), cursor.next());
+                assertTrue("Wrong edge", cursor.edge() == e);
+                assertTrue("Wrong target", cursor.target() == e.getV(v));
+            }
+            assertFalse("Cursor ran on", cursor.hasNext());
+            cursor.inEdges(v);
+            for (Graph<Integer, Integer>.Edge e : g.inEdges(v)) {
+                cursor.next();
+                assertTrue("Wrong incoming edge", cursor.edge() == e);
+            }
+            assertFalse("Cursor ran on", cursor.hasNext());
+        }
+    }
+
+    @Test
+    public void graphStreams() {
+        Random rand = new Random(23);
+        GraphBuilder<Integer, Integer> builder =
+            new GraphBuilder<Integer, Integer>();
+        for (int i = 0; i < 2000; i += 1) {
+            builder.addVertex(i);
+        }
+        for (int i = 0; i < 3000; i += 1) {
+            builder.addEdge(rand.nextInt(2000), rand.nextInt(2000), i);
+        }
+        IntGraph ig = builder.buildIntGraph(true);
+        DirectedGraph<Integer, Integer> g = builder.buildDirected();
+        for (int i = 1000; i < 2000; i += 7) {
+            g.remove(builder.vertex(i));
+        }
+        assertEquals("wrong vertex count", g.vertexSize(),
+                     GraphStreams.vertices(g).parallel().count());
+        assertEquals("wrong edge count", g.edgeSize(),
+                     GraphStreams.edges(g).parallel().count());
+        List<Integer> labels = new ArrayList<Integer>();
+        for (Graph<Integer, Integer>.Vertex v : g.vertices()) {
+            labels.add(v.getLabel());
+        }
+        Object[] streamed = GraphStreams.vertices(g).parallel()
+            .map(new Function<Graph<Integer, Integer>.Vertex, Integer>() {
+                @Override
+                public Integer apply(Graph<Integer, Integer>.Vertex v) {
+                    return v.getLabel();
+                }
+            }).sorted().toArray();
+        assertEquals("wrong vertices", labels, Arrays.asList(streamed));
+
+        Graph<Integer, Integer>.Vertex v0 = builder.vertex(0);
+        BreadthFirstLevels<Integer, Integer> levels =
+            Graphs.breadthFirstLevels(g, v0);
+        final List<Graph<Integer, Integer>.Vertex> bfs =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        GraphStreams.breadthFirst(g, v0).forEachOrdered(
+            new Consumer<Graph<Integer, Integer>.Vertex>() {
+                @Override
+                public void accept(Graph<Integer, Integer>.Vertex v) {
+                    bfs.add(v);
+                }
+            });
+        assertEquals("wrong BFS count", levels.reachedSize(), bfs.size());
+        assertTrue("BFS must start at v0", bfs.get(0) == v0);
+        for (int i = 1; i < bfs.size(); i += 1) {
+            assertTrue("BFS out of order", levels.level(bfs.get(i - 1))
+                       <= levels.level(bfs.get(i)));
+        }
+        assertEquals("wrong DFS count", levels.reachedSize(),
+                     GraphStreams.depthFirstPreorder(g, v0).distinct()
+                     .count());
+        final Graph<Integer, Integer>.Vertex last = bfs.get(bfs.size() - 1);
+        assertTrue("findFirst failed", GraphStreams.depthFirstPreorder(g, v0)
+                   .filter(new Predicate<Graph<Integer, Integer>.Vertex>() {
+                       @Override
+                       public boolean test(Graph<Integer, Integer>.Vertex v) {
+                           return v == last;
+                       }
+                   }).findFirst().get() == last);
+
+        assertEquals("wrong IntGraph BFS count", GraphStreams
+                     .breadthFirst(ig, 0).count(),
+                     GraphStreams.depthFirstPreorder(ig, 0).distinct()
+                     .count());
+        assertEquals("wrong limit", 5,
+                     GraphStreams.breadthFirst(ig, 0).limit(5).count());
+
+        DirectedGraph<Character, String> h =
+            new DirectedGraph<Character, String>();
+        Graph<Character, String>.Vertex a = h.add('A'), b = h.add('B'),
+            c = h.add('C'), d = h.add('D');
+        h.add(a, b, "AB");
+        h.add(a, c, "AC");
+        h.add(b, d, "BD");
+        assertEquals("wrong preorder", "ABDC",
+                     labelString(GraphStreams.depthFirstPreorder(h, a)));
+        assertEquals("wrong BFS order", "ABCD",
+                     labelString(GraphStreams.breadthFirst(h, a)));
+    }
+
+    /** Returns the labels of the vertices in VERTS, concatenated in
+     *  stream order. */
+    private static String
+    labelString(Stream<Graph<Character, String>.Vertex> verts) {
+        StringBuilder result = new StringBuilder();
+        Iterator<Graph<Character, String>.Vertex> iter = verts.iterator();
+        while (iter.hasNext()) {
+            result.append(iter.next().getLabel());
+        }
+        return result.toString();
+    }
+
+    /** Returns the vertices of G in the order of G.vertices(). */
+    private static List<Graph<Integer, Integer>.Vertex>
+    vertexList(Graph<Integer, Integer> g) {
+        List<Graph<Integer, Integer>.Vertex> result =
+            new ArrayList<Graph<Integer, Integer>.Vertex>();
+        for (Graph<Integer, Integer>.Vertex v : g.vertices()) {
+            result.add(v);
+        }
+        return result;
+    }
+
+    /** Returns the labels of EDGES, in ascending order. */
+    private static List<Integer>
+    sortedLabels(Iteration<Graph<Integer, Integer>.Edge> edges) {
+        List<Integer> result = labels(edges);
+        Collections.sort(result);
+        return result;
+    }
+
     @SafeVarargs
     private static <VLabel, ELabel>
     List<Graph<VLabel, ELabel>.Edge> constructEdgeList(
@@ -305,4 +1107,26 @@ public class Testing {
         }
     }
 
+    /** Weights Integer labels by their values. */
+    private static final Weighting<Integer> LABEL_WEIGHTING =
+        new Weighting<Integer>() {
+            @Override
+            public double weight(Integer x) {
+                return x;
+            }
+        };
+
+    /** Gives every vertex weight 0 and records no weights. */
+    private static final Weighter<Object> NO_WEIGHTER =
+        new Weighter<Object>() {
+            @Override
+            public double weight(Object x) {
+                return 0;
+            }
+
+            @Override
+            public void setWeight(Object x, double v) {
+            }
+        };
+
 }
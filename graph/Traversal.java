@@ -2,11 +2,9 @@ package graph;
 
 import java.util.Comparator;
 
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.HashSet;
-
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.PriorityQueue;
 
 /** Implements a generalized traversal of a graph.  At any given time,
  *  there is a particular set of untraversed vertices---the "fringe."
@@ -23,9 +21,10 @@ import java.util.LinkedList;
  *       and removes vertices at different ends.  It also revisits the node
  *       itself after traversing all successors as for depth-first
  *       traversals.
- *     + A general traversal treats the fringe as an ordered set, as
- *       determined by a Comparator argument.  There is no postVisit
- *       for this type of traversal.
+ *     + A general traversal treats the fringe as a priority queue, as
+ *       determined by a Comparator argument.  Vertices whose labels
+ *       compare equal are removed in the order they were added.  There
+ *       is no postVisit for this type of traversal.
  *  As vertices are added to the fringe, the traversal calls a
  *  preVisit method on the vertex.
  *
@@ -36,6 +35,10 @@ import java.util.LinkedList;
  *  RejectException to prevent a vertex from being added to the
  *  fringe, and the visit method may throw a RejectException to
  *  prevent its successors from being added to the fringe.
+ *
+ *  Alternatively, the client may supply a Visitor to a VisitorTraversal,
+ *  whose methods return a VisitResult saying whether to continue, reject,
+ *  or stop, instead of throwing exceptions.
  *  @author Aleks Kamko
  */
 public class Traversal<VLabel, ELabel> {
@@ -51,45 +54,52 @@ public class Traversal<VLabel, ELabel> {
         _graph = G;
         _lastTraversalType = TraversalTypes.GENERAL;
         _lastOrder = order;
-        TreeSet<Graph<VLabel, ELabel>.Vertex> fringe;
-        fringe = new TreeSet<Graph<VLabel, ELabel>.Vertex>(
-                new VertexComparator(order));
-        fringe.add(v0);
+        PriorityQueue<FringeEntry> fringe;
+        fringe = new PriorityQueue<FringeEntry>(INITIAL_FRINGE,
+                                                new FringeComparator(order));
+        long added = 0;
+        fringe.add(new FringeEntry(v0, added));
 
         if (!_continued) {
-            _marked = new HashSet<Graph<VLabel, ELabel>.Vertex>();
+            _marked = new BitSet(G.vertexIdBound());
         }
         _continued = false;
 
-        Graph<VLabel, ELabel>.Vertex v, u, finalVertex = null;
-        Graph<VLabel, ELabel>.Edge e, finalEdge = null;
-        try {
-            while (!fringe.isEmpty()) {
-                v = fringe.pollFirst();
-                _marked.add(v);
-                finalEdge = null;
-                finalVertex = v;
-                try {
-                    visit(v);
-                    for (Graph<VLabel, ELabel>.Edge d : G.outEdges(v)) {
-                        u = d.getV(v);
-                        if (!_marked.contains(u)) {
-                            finalEdge = d;
-                            try {
-                                preVisit(d, v);
-                                fringe.add(u);
-                            } catch (RejectException ex) {
-                                /* Ignore RejectException. */
-                            }
-                        }
+        EdgeCursor<VLabel, ELabel> cursor = cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        VisitResult result;
+        FringeEntry entry;
+        while (!fringe.isEmpty()) {
+            entry = fringe.poll();
+            v = entry._vertex;
+            if (entry._order > 0 && _marked.get(v.id())) {
+                continue;
+            }
+            _marked.set(v.id());
+            result = visitResult(v);
+            if (result == VisitResult.STOP) {
+                stopped(v, null);
+                return;
+            } else if (result == VisitResult.REJECT) {
+                continue;
+            }
+            cursor.outEdges(v);
+            while (cursor.hasNext()) {
+                cursor.next();
+                u = cursor.target();
+                if (!_marked.get(u.id())) {
+                    e = cursor.edge();
+                    result = preVisitResult(e, v);
+                    if (result == VisitResult.STOP) {
+                        stopped(v, e);
+                        return;
+                    } else if (result == VisitResult.CONTINUE) {
+                        added += 1;
+                        fringe.add(new FringeEntry(u, added));
                     }
-                } catch (RejectException ex) {
-                    /* Ignore RejectException. */
                 }
             }
-        } catch (StopException ex) {
-            _finalVertex = finalVertex;
-            _finalEdge = finalEdge;
         }
     }
 
@@ -103,53 +113,57 @@ public class Traversal<VLabel, ELabel> {
                                    Graph<VLabel, ELabel>.Vertex v0) {
         _graph = G;
         _lastTraversalType = TraversalTypes.DEPTH;
-        LinkedList<Graph<VLabel, ELabel>.Vertex> fringe;
-        fringe = new LinkedList<Graph<VLabel, ELabel>.Vertex>();
+        ArrayDeque<Graph<VLabel, ELabel>.Vertex> fringe;
+        fringe = new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
         fringe.addLast(v0);
 
         if (!_continued) {
-            _marked = new HashSet<Graph<VLabel, ELabel>.Vertex>();
+            _marked = new BitSet(G.vertexIdBound());
         }
         _continued = false;
+        _onFringe.clear();
+        _onFringe.set(v0.id());
 
-        Graph<VLabel, ELabel>.Vertex v, u, finalVertex = null;
-        Graph<VLabel, ELabel>.Edge e, finalEdge = null;
-        try {
-            while (!fringe.isEmpty()) {
-                v = fringe.pollLast();
-                if (_marked.contains(v)) {
-                    finalVertex = v;
-                    finalEdge = null;
-                    postVisit(v);
-                    continue;
+        EdgeCursor<VLabel, ELabel> cursor = cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        VisitResult result;
+        while (!fringe.isEmpty()) {
+            v = fringe.pollLast();
+            _onFringe.clear(v.id());
+            if (_marked.get(v.id())) {
+                if (postVisitResult(v) == VisitResult.STOP) {
+                    stopped(v, null);
+                    return;
                 }
-                finalVertex = v;
-                finalEdge = null;
-                _marked.add(v);
-                try {
-                    visit(v);
-                    for (Graph<VLabel, ELabel>.Edge d : G.outEdges(v)) {
-                        u = d.getV(v);
-                        if (!_marked.contains(u)) {
-                            finalEdge = d;
-                            try {
-                                preVisit(d, v);
-                                if (!fringe.contains(u)) {
-                                    fringe.addFirst(u);
-                                }
-                            } catch (RejectException ex) {
-                                /* Ignore RejectException. */
-                            }
-                        }
+                continue;
+            }
+            _marked.set(v.id());
+            result = visitResult(v);
+            if (result == VisitResult.STOP) {
+                stopped(v, null);
+                return;
+            } else if (result == VisitResult.REJECT) {
+                continue;
+            }
+            cursor.outEdges(v);
+            while (cursor.hasNext()) {
+                cursor.next();
+                u = cursor.target();
+                if (!_marked.get(u.id())) {
+                    e = cursor.edge();
+                    result = preVisitResult(e, v);
+                    if (result == VisitResult.STOP) {
+                        stopped(v, e);
+                        return;
+                    } else if (result == VisitResult.CONTINUE
+                               && !_onFringe.get(u.id())) {
+                        _onFringe.set(u.id());
+                        fringe.addFirst(u);
                     }
-                    fringe.addFirst(v);
-                } catch (RejectException ex) {
-                    /* Ignore RejectException. */
                 }
             }
-        } catch (StopException ex) {
-            _finalVertex = finalVertex;
-            _finalEdge = finalEdge;
+            fringe.addFirst(v);
         }
     }
 
@@ -163,53 +177,57 @@ public class Traversal<VLabel, ELabel> {
                                      Graph<VLabel, ELabel>.Vertex v0) {
         _graph = G;
         _lastTraversalType = TraversalTypes.BREADTH;
-        LinkedList<Graph<VLabel, ELabel>.Vertex> fringe;
-        fringe = new LinkedList<Graph<VLabel, ELabel>.Vertex>();
+        ArrayDeque<Graph<VLabel, ELabel>.Vertex> fringe;
+        fringe = new ArrayDeque<Graph<VLabel, ELabel>.Vertex>();
         fringe.addFirst(v0);
 
         if (!_continued) {
-            _marked = new HashSet<Graph<VLabel, ELabel>.Vertex>();
+            _marked = new BitSet(G.vertexIdBound());
         }
         _continued = false;
+        _onFringe.clear();
+        _onFringe.set(v0.id());
 
-        Graph<VLabel, ELabel>.Vertex v, u, finalVertex = null;
-        Graph<VLabel, ELabel>.Edge e, finalEdge = null;
-        try {
-            while (!fringe.isEmpty()) {
-                v = fringe.pollFirst();
-                if (_marked.contains(v)) {
-                    finalVertex = v;
-                    finalEdge = null;
-                    postVisit(v);
-                    continue;
+        EdgeCursor<VLabel, ELabel> cursor = cursor(G);
+        Graph<VLabel, ELabel>.Vertex v, u;
+        Graph<VLabel, ELabel>.Edge e;
+        VisitResult result;
+        while (!fringe.isEmpty()) {
+            v = fringe.pollFirst();
+            _onFringe.clear(v.id());
+            if (_marked.get(v.id())) {
+                if (postVisitResult(v) == VisitResult.STOP) {
+                    stopped(v, null);
+                    return;
                 }
-                finalVertex = v;
-                finalEdge = null;
-                _marked.add(v);
-                try {
-                    visit(v);
-                    for (Graph<VLabel, ELabel>.Edge d : G.outEdges(v)) {
-                        u = d.getV(v);
-                        if (!_marked.contains(u)) {
-                            finalEdge = d;
-                            try {
-                                preVisit(d, v);
-                                if (!fringe.contains(u)) {
-                                    fringe.addLast(u);
-                                }
-                            } catch (RejectException ex) {
-                                /* Ignore RejectException. */
-                            }
-                        }
+                continue;
+            }
+            _marked.set(v.id());
+            result = visitResult(v);
+            if (result == VisitResult.STOP) {
+                stopped(v, null);
+                return;
+            } else if (result == VisitResult.REJECT) {
+                continue;
+            }
+            cursor.outEdges(v);
+            while (cursor.hasNext()) {
+                cursor.next();
+                u = cursor.target();
+                if (!_marked.get(u.id())) {
+                    e = cursor.edge();
+                    result = preVisitResult(e, v);
+                    if (result == VisitResult.STOP) {
+                        stopped(v, e);
+                        return;
+                    } else if (result == VisitResult.CONTINUE
+                               && !_onFringe.get(u.id())) {
+                        _onFringe.set(u.id());
+                        fringe.addLast(u);
                     }
-                    fringe.addLast(v);
-                } catch (RejectException ex) {
-                    /* Ignore RejectException. */
                 }
             }
-        } catch (StopException ex) {
-            _finalVertex = finalVertex;
-            _finalEdge = finalEdge;
+            fringe.addLast(v);
         }
     }
 
@@ -253,6 +271,65 @@ public class Traversal<VLabel, ELabel> {
         return _graph;
     }
 
+    /** Records V and E as the vertex and edge at which the current
+     *  traversal stopped. */
+    private void stopped(Graph<VLabel, ELabel>.Vertex v,
+                         Graph<VLabel, ELabel>.Edge e) {
+        _finalVertex = v;
+        _finalEdge = e;
+    }
+
+    /** Calls preVisit(E, V0), and returns the VisitResult corresponding to
+     *  the exception it throws, if any.  The loops of the traversals call
+     *  this and the next two methods, which a VisitorTraversal overrides
+     *  to call its Visitor instead. */
+    VisitResult preVisitResult(Graph<VLabel, ELabel>.Edge e,
+                               Graph<VLabel, ELabel>.Vertex v0) {
+        try {
+            preVisit(e, v0);
+            return VisitResult.CONTINUE;
+        } catch (RejectException ex) {
+            return VisitResult.REJECT;
+        } catch (StopException ex) {
+            return VisitResult.STOP;
+        }
+    }
+
+    /** Calls visit(V), and returns the VisitResult corresponding to the
+     *  exception it throws, if any. */
+    VisitResult visitResult(Graph<VLabel, ELabel>.Vertex v) {
+        try {
+            visit(v);
+            return VisitResult.CONTINUE;
+        } catch (RejectException ex) {
+            return VisitResult.REJECT;
+        } catch (StopException ex) {
+            return VisitResult.STOP;
+        }
+    }
+
+    /** Calls postVisit(V), and returns STOP if it throws StopException
+     *  and otherwise CONTINUE. */
+    VisitResult postVisitResult(Graph<VLabel, ELabel>.Vertex v) {
+        try {
+            postVisit(v);
+        } catch (RejectException ex) {
+            /* Ignore RejectException. */
+        } catch (StopException ex) {
+            return VisitResult.STOP;
+        }
+        return VisitResult.CONTINUE;
+    }
+
+    /** Returns an edge cursor over G, reusing the one from the last
+     *  traversal if it was of G. */
+    private EdgeCursor<VLabel, ELabel> cursor(Graph<VLabel, ELabel> G) {
+        if (_cursor == null || _cursor.graph() != G) {
+            _cursor = new EdgeCursor<VLabel, ELabel>(G);
+        }
+        return _cursor;
+    }
+
     /** Method to be called when adding the node at the other end of E from V0
      *  to the fringe. If this routine throws a StopException,
      *  the traversal ends.  If it throws a RejectException, the edge
@@ -283,8 +360,13 @@ public class Traversal<VLabel, ELabel> {
     /** The last graph traversed. */
     protected Graph<VLabel, ELabel> _graph;
 
-    /** Already visited vertices in the last traversal. */
-    private Set<Graph<VLabel, ELabel>.Vertex> _marked;
+    /** Ids of already visited vertices in the last traversal. */
+    private BitSet _marked;
+    /** Ids of the unvisited vertices on the fringe of the current
+     *  depth- or breadth-first traversal. */
+    private final BitSet _onFringe = new BitSet();
+    /** Cursor over the edges of the last graph traversed, or null. */
+    private EdgeCursor<VLabel, ELabel> _cursor;
     /** Type of last traversal. */
     private TraversalTypes _lastTraversalType;
     /** Order of last general traversal. */
@@ -301,21 +383,46 @@ public class Traversal<VLabel, ELabel> {
     /** Flag for continued traversal. (false by default.) */
     private boolean _continued = false;
 
-    /** Comparator that orders vertices by their VLabels based on a given
-     *  VLabel Comparator. */
-    private class VertexComparator
-            implements Comparator<Graph<VLabel, ELabel>.Vertex> {
+    /** Initial capacity of the fringe of a general traversal. */
+    private static final int INITIAL_FRINGE = 16;
+
+    /** A vertex on the fringe of a general traversal.  A vertex may be on
+     *  the fringe more than once; copies removed after it has been visited
+     *  are skipped. */
+    private class FringeEntry {
+
+        /** An entry for V, which was the ORDERth vertex added to the
+         *  fringe (counting from 0). */
+        FringeEntry(Graph<VLabel, ELabel>.Vertex v, long order) {
+            _vertex = v;
+            _order = order;
+        }
+
+        /** The vertex. */
+        private final Graph<VLabel, ELabel>.Vertex _vertex;
+        /** Number of vertices added to the fringe before this one. */
+        private final long _order;
+    }
 
-        /** Constructs a VertexComparator that uses COMPARATOR to compare
+    /** Comparator that orders fringe entries by their vertices' VLabels
+     *  based on a given VLabel Comparator, and entries whose labels compare
+     *  equal by the order in which they were added. */
+    private class FringeComparator implements Comparator<FringeEntry> {
+
+        /** Constructs a FringeComparator that uses COMPARATOR to compare
          *  VLabels. */
-        VertexComparator(Comparator<VLabel> comparator) {
+        FringeComparator(Comparator<VLabel> comparator) {
             _comparator = comparator;
         }
 
         @Override
-        public int compare(Graph<VLabel, ELabel>.Vertex v0,
-            Graph<VLabel, ELabel>.Vertex v1) {
-            return _comparator.compare(v0.getLabel(), v1.getLabel());
+        public int compare(FringeEntry e0, FringeEntry e1) {
+            int c = _comparator.compare(e0._vertex.getLabel(),
+                                        e1._vertex.getLabel());
+            if (c != 0) {
+                return c;
+            }
+            return Long.compare(e0._order, e1._order);
         }
 
         /** VLabel Comparator to base order off of. */
@@ -3,6 +3,7 @@ package graph;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
 /** Unit tests for the Traversal.java
@@ -70,6 +71,40 @@ public class TraversalTesting {
                 visitList.toArray());
     }
 
+    @Test
+    public void generalTraversalEqualLabels() {
+        DirectedGraph<Integer, String> g =
+            new DirectedGraph<Integer, String>();
+        final LinkedList<Graph<Integer, String>.Vertex> visited =
+            new LinkedList<Graph<Integer, String>.Vertex>();
+        Traversal<Integer, String> traversal =
+            new Traversal<Integer, String>() {
+                @Override
+                protected void visit(Graph<Integer, String>.Vertex v) {
+                    visited.add(v);
+                }
+            };
+
+        Graph<Integer, String>.Vertex vA = g.add(0);
+        Graph<Integer, String>.Vertex vB = g.add(2);
+        Graph<Integer, String>.Vertex vC = g.add(1);
+        Graph<Integer, String>.Vertex vD = g.add(2);
+        Graph<Integer, String>.Vertex vE = g.add(1);
+        Graph<Integer, String>.Vertex vF = g.add(1);
+
+        addEdge(g, vA, vB, "AB");
+        addEdge(g, vA, vC, "AC");
+        addEdge(g, vA, vD, "AD");
+        addEdge(g, vA, vE, "AE");
+        addEdge(g, vC, vF, "CF");
+        addEdge(g, vE, vC, "EC");
+
+        traversal.traverse(g, vA, Graph.<Integer>naturalOrder());
+
+        assertEquals("Incorrect: equal labels",
+                     Arrays.asList(vA, vC, vE, vF, vB, vD), visited);
+    }
+
     @Test
     public void depthFirstDirected1() {
         DirectedGraph<Character, String> g =
@@ -272,6 +307,133 @@ public class TraversalTesting {
                 visitList.toArray());
     }
 
+    @Test
+    public void wideTraversals() {
+        DirectedGraph<Integer, String> g =
+            new DirectedGraph<Integer, String>();
+        int n = 100000;
+        Graph<Integer, String>.Vertex root = g.add(0);
+        Graph<Integer, String>.Vertex prev = root;
+        for (int i = 1; i < n; i += 1) {
+            Graph<Integer, String>.Vertex v = g.add(i);
+            g.add(root, v);
+            g.add(prev, v);
+            prev = v;
+        }
+        CountTraversal count = new CountTraversal();
+        count.depthFirstTraverse(g, root);
+        assertEquals("wrong visit count", n, count._visits);
+        assertEquals("wrong postVisit count", n, count._postVisits);
+        count = new CountTraversal();
+        count.breadthFirstTraverse(g, root);
+        assertEquals("wrong visit count", n, count._visits);
+        assertEquals("wrong postVisit count", n, count._postVisits);
+    }
+
+    @Test
+    public void visitorTraversal() {
+        DirectedGraph<Character, String> g =
+            new DirectedGraph<Character, String>();
+        Graph<Character, String>.Vertex vA = g.add('A');
+        Graph<Character, String>.Vertex vB = g.add('B');
+        Graph<Character, String>.Vertex vC = g.add('C');
+        Graph<Character, String>.Vertex vD = g.add('D');
+        Graph<Character, String>.Vertex vE = g.add('E');
+        Graph<Character, String>.Vertex vF = g.add('F');
+        addEdge(g, vA, vB, "AB");
+        addEdge(g, vA, vF, "AF");
+        addEdge(g, vB, vC, "BC");
+        addEdge(g, vC, vD, "CD");
+        addEdge(g, vC, vE, "CE");
+        addEdge(g, vD, vB, "DB");
+        addEdge(g, vD, vE, "DE");
+        addEdge(g, vE, vA, "EA");
+        addEdge(g, vF, vE, "FE");
+
+        for (int kind = 0; kind < 3; kind += 1) {
+            LinkedList<String> expected = new LinkedList<String>(),
+                actual = new LinkedList<String>();
+            runTraversal(new MarkTraversal(expected), g, vA, kind);
+            runTraversal(new VisitorTraversal<Character, String>(
+                             new MarkVisitor(actual, 'X')), g, vA, kind);
+            assertEquals("visitor traversal differs", expected, actual);
+        }
+
+        LinkedList<String> visits = new LinkedList<String>();
+        Traversal<Character, String> stopping =
+            new VisitorTraversal<Character, String>(
+                new MarkVisitor(visits, 'C'));
+        stopping.depthFirstTraverse(g, vA);
+        assertTrue("wrong final vertex", stopping.finalVertex() == vC);
+        assertEquals("wrong final edge", null, stopping.finalEdge());
+        assertEquals("did not stop", "bC", visits.getLast());
+        assertFalse("rejected vertex visited", visits.contains("bF"));
+    }
+
+    /** Runs a general (if KIND is 0), depth-first (if 1), or breadth-first
+     *  traversal T of G from V0. */
+    private static void runTraversal(Traversal<Character, String> t,
+                                     Graph<Character, String> g,
+                                     Graph<Character, String>.Vertex v0,
+                                     int kind) {
+        if (kind == 0) {
+            t.traverse(g, v0, Graph.<Character>naturalOrder());
+        } else if (kind == 1) {
+            t.depthFirstTraverse(g, v0);
+        } else {
+            t.breadthFirstTraverse(g, v0);
+        }
+    }
+
+    /** A Visitor that records its calls as MarkTraversal does.  Unless
+     *  its stop label is 'X', it also rejects edges to F and stops on
+     *  visiting the vertex with its stop label. */
+    private static class MarkVisitor implements Visitor<Character, String> {
+        MarkVisitor(LinkedList<String> visitList, char stop) {
+            _visitList = visitList;
+            _stop = stop;
+        }
+
+        @Override
+        public VisitResult preVisit(Graph<Character, String>.Edge e,
+                                    Graph<Character, String>.Vertex v) {
+            _visitList.add("a" + e.getV(v).toString());
+            return _stop != 'X' && e.getV(v).getLabel() == 'F'
+                ? VisitResult.REJECT : VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult visit(Graph<Character, String>.Vertex v) {
+            _visitList.add("b" + v.toString());
+            return v.getLabel() == _stop
+                ? VisitResult.STOP : VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult postVisit(Graph<Character, String>.Vertex v) {
+            _visitList.add("c" + v.toString());
+            return VisitResult.CONTINUE;
+        }
+
+        private final LinkedList<String> _visitList;
+        private final char _stop;
+    }
+
+    private static class CountTraversal extends Traversal<Integer, String> {
+        @Override
+        protected void visit(Graph<Integer, String>.Vertex v) {
+            _visits += 1;
+        }
+
+        @Override
+        protected void postVisit(Graph<Integer, String>.Vertex v) {
+            _postVisits += 1;
+        }
+
+        private int _visits;
+        private int _postVisits;
+    }
+
     private static class OrderedTraversal extends Traversal<Integer, String> {
         OrderedTraversal(LinkedList<String> visitList) {
             _visitList = visitList;
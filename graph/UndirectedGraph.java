@@ -4,8 +4,8 @@ package graph;
  * any public methods.  You may add bodies to abstract methods, modify
  * existing bodies, or override inherited methods.  */
 
-import java.util.Set;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
 /** An undirected graph with vertices labeled with VLABEL and edges
  *  labeled with ELABEL.
@@ -27,31 +27,36 @@ public class UndirectedGraph<VLabel, ELabel> extends Graph<VLabel, ELabel> {
     public Edge add(Vertex from,
                     Vertex to,
                     ELabel label) {
-        Edge e = new Edge(from, to, label);
-        from.addEdge(e);
+        Edge e = newEdge(from, to, label);
+        from.addOutgoingEdge(e);
         to.addEdge(e);
-        edgeSet().add(e);
+        notifyEdgeAdded(e);
         return e;
     }
 
     @Override
     public void remove(Vertex v) {
-        Vertex other;
-        Set<Edge> elist = new HashSet<Edge>();
+        if (!containsVertex(v)) {
+            return;
+        }
+        List<Edge> elist = new ArrayList<Edge>();
         for (Edge e : edges(v)) {
             elist.add(e);
         }
-        for (Edge e : elist) {
-            remove(e);
-        }
-        vertexSet().remove(v);
+        removeAll(elist);
+        releaseVertex(v);
+        notifyVertexRemoved(v);
     }
 
     @Override
     public void remove(Edge e) {
-        e.getV0().removeEdge(e);
+        if (!containsEdge(e)) {
+            return;
+        }
+        e.getV0().removeOutgoing(e);
         e.getV1().removeEdge(e);
-        edgeSet().remove(e);
+        releaseEdge(e);
+        notifyEdgeRemoved(e);
     }
 
 }
@@ -0,0 +1,53 @@
+package graph;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/** A graph that changes by whole versions, so that it may be read by any
+ *  number of threads while one thread changes it, without locks.
+ *
+ *  Readers call current() and use the GraphVersion it returns for as long
+ *  as they like: a published version never changes, so a reader holding
+ *  one (pinning it) sees a consistent graph however many versions are
+ *  published meanwhile, and any number of them may search it at once with
+ *  the methods of Graphs.  A writer calls edit() to get a draft of the next
+ *  version, changes it through the usual Graph operations, and then
+ *  commits it, which publishes all of its changes at once.  No reader ever
+ *  sees some of the changes of a draft without the others.
+ *
+ *  Successive versions share their vertex and edge objects, and all parts
+ *  of their tables that a draft did not change, so a version costs space
+ *  in proportion to its changes (plus a small directory of its tables).
+ *  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class VersionedGraph<VLabel, ELabel> {
+
+    /** A graph whose current version is empty, and which is directed iff
+     *  DIRECTED. */
+    public VersionedGraph(boolean directed) {
+        _current = new AtomicReference<GraphVersion<VLabel, ELabel>>(
+            new GraphVersion<VLabel, ELabel>(this, directed));
+    }
+
+    /** Returns the most recently published version.  Never blocks. */
+    public GraphVersion<VLabel, ELabel> current() {
+        return _current.get();
+    }
+
+    /** Returns a new draft of the version following current(), which
+     *  becomes visible to readers when committed. */
+    public GraphVersion<VLabel, ELabel> edit() {
+        return new GraphVersion<VLabel, ELabel>(current());
+    }
+
+    /** Makes DRAFT the current version if BASE, the version it was made
+     *  from, is still current.  Returns true iff it does so. */
+    boolean publish(GraphVersion<VLabel, ELabel> base,
+                    GraphVersion<VLabel, ELabel> draft) {
+        return _current.compareAndSet(base, draft);
+    }
+
+    /** The most recently published version. */
+    private final AtomicReference<GraphVersion<VLabel, ELabel>> _current;
+
+}
@@ -0,0 +1,15 @@
+package graph;
+
+/** The outcome of one call of a Visitor, telling a traversal how to go on.
+ *  @author Aleks Kamko
+ */
+public enum VisitResult {
+    /** Go on as usual. */
+    CONTINUE,
+    /** Skip this vertex or edge: from preVisit, do not add the vertex to
+     *  the fringe; from visit, do not add its successors.  From postVisit,
+     *  the same as CONTINUE. */
+    REJECT,
+    /** End the traversal now. */
+    STOP;
+}
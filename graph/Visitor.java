@@ -0,0 +1,26 @@
+package graph;
+
+/** The callbacks of a traversal run by a VisitorTraversal.  They mean the
+ *  same as the preVisit, visit, and postVisit methods of Traversal, but
+ *  steer the traversal by their results rather than by throwing
+ *  RejectException or StopException, which is cheaper when they reject or
+ *  stop often.  VLABEL and ELABEL are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public interface Visitor<VLabel, ELabel> {
+
+    /** Called when adding the vertex at the other end of E from V0 to the
+     *  fringe.  Returns REJECT to leave it off, or STOP to end the
+     *  traversal. */
+    VisitResult preVisit(Graph<VLabel, ELabel>.Edge e,
+                         Graph<VLabel, ELabel>.Vertex v0);
+
+    /** Called when visiting vertex V.  Returns REJECT to skip the
+     *  successors of V, or STOP to end the traversal. */
+    VisitResult visit(Graph<VLabel, ELabel>.Vertex v);
+
+    /** Called after the successors of V have been traversed, in depth- and
+     *  breadth-first traversals.  Returns STOP to end the traversal. */
+    VisitResult postVisit(Graph<VLabel, ELabel>.Vertex v);
+
+}
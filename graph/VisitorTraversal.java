@@ -0,0 +1,41 @@
+package graph;
+
+/** A Traversal whose preVisit, visit, and postVisit steps are those of a
+ *  Visitor.  The traversal branches on the results the Visitor returns,
+ *  so no exceptions are thrown or caught along the way.  VLABEL and ELABEL
+ *  are the types of vertex and edge labels.
+ *  @author Aleks Kamko
+ */
+public class VisitorTraversal<VLabel, ELabel>
+    extends Traversal<VLabel, ELabel> {
+
+    /** A traversal that calls VISITOR. */
+    public VisitorTraversal(Visitor<VLabel, ELabel> visitor) {
+        _visitor = visitor;
+    }
+
+    /** Returns the Visitor I call. */
+    public Visitor<VLabel, ELabel> visitor() {
+        return _visitor;
+    }
+
+    @Override
+    VisitResult preVisitResult(Graph<VLabel, ELabel>.Edge e,
+                               Graph<VLabel, ELabel>.Vertex v0) {
+        return _visitor.preVisit(e, v0);
+    }
+
+    @Override
+    VisitResult visitResult(Graph<VLabel, ELabel>.Vertex v) {
+        return _visitor.visit(v);
+    }
+
+    @Override
+    VisitResult postVisitResult(Graph<VLabel, ELabel>.Vertex v) {
+        return _visitor.postVisit(v);
+    }
+
+    /** The Visitor I call. */
+    private final Visitor<VLabel, ELabel> _visitor;
+
+}
@@ -3,8 +3,11 @@ package trip;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.FileNotFoundException;
 
@@ -24,10 +27,14 @@ import java.io.IOException;
 import java.io.File;
 
 import static trip.Direction.*;
+import static trip.TripException.error;
 import static java.lang.System.out;
 
+import graph.ContractionHierarchy;
+import graph.CsrGraph;
 import graph.Graph;
 import graph.DirectedGraph;
+import graph.Landmarks;
 
 /** Initial class for the 'trip' program.
  *  @author Aleks Kamko
@@ -36,10 +43,17 @@ public final class Main {
 
     /** Entry point for the CS61B trip program.  ARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
+     *      [ -m MAP ] [ -o OUT ] [ -b ] [ -c HIERARCHY ] [ -l LANDMARKS ]
+     *          [ REQUEST ]
      *  where MAP (default Map) contains the map data, OUT (default standard
      *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *  the locations along the requested trip.  The -b flag requests a
+     *  bidirectional search.  With -c, trips are found using the contraction
+     *  hierarchy saved in HIERARCHY, which is first built from MAP and saved
+     *  there if it does not exist.  With -l, A* searches estimate distances
+     *  using the landmark tables saved in LANDMARKS, which are likewise
+     *  computed and saved first if necessary.  Since hierarchy queries do
+     *  no A* search, -c may not be combined with -b or -l.
      */
     public static void main(String... args) {
         String mapFileName;
@@ -65,6 +79,22 @@ public final class Main {
                 } else {
                     outFileName = args[a];
                 }
+            } else if (args[a].equals("-b")) {
+                _bidirectional = true;
+            } else if (args[a].equals("-c")) {
+                a += 1;
+                if (a == args.length) {
+                    usage();
+                } else {
+                    _hierarchyFileName = args[a];
+                }
+            } else if (args[a].equals("-l")) {
+                a += 1;
+                if (a == args.length) {
+                    usage();
+                } else {
+                    _landmarksFileName = args[a];
+                }
             } else if (args[a].startsWith("-")) {
                 usage();
             } else {
@@ -72,6 +102,11 @@ public final class Main {
             }
         }
 
+        if (_hierarchyFileName != null
+            && (_bidirectional || _landmarksFileName != null)) {
+            usage();
+        }
+
         if (a == args.length - 1) {
             requestFileName = args[a];
         } else if (a > args.length) {
@@ -116,12 +151,81 @@ public final class Main {
         Map<String, Graph<Location, Road>.Vertex> vmap =
             new HashMap<String, Graph<Location, Road>.Vertex>();
         MapGraphBuilder.buildMapGraph(_roads, _locations, g, vmap);
+        CsrGraph<Location, Road> map = new CsrGraph<Location, Road>(g);
+        for (Map.Entry<String, Graph<Location, Road>.Vertex> entry
+                 : vmap.entrySet()) {
+            entry.setValue(map.image(entry.getValue()));
+        }
 
-        TripFinder tFinder = new TripFinder(g, vmap);
+        TripFinder tFinder;
+        if (_hierarchyFileName != null) {
+            tFinder = new TripFinder(map, vmap,
+                    loadHierarchy(new File(_hierarchyFileName), map));
+        } else if (_landmarksFileName != null) {
+            tFinder = new TripFinder(map, vmap, _bidirectional,
+                    loadLandmarks(new File(_landmarksFileName), map));
+        } else {
+            tFinder = new TripFinder(map, vmap, _bidirectional);
+        }
         TripPrinter tPrinter = new TripPrinter(tFinder.findTrips());
         tPrinter.printTrip();
     }
 
+    /** Returns the contraction hierarchy of G saved in HIERARCHYFILE. If
+     *  there is no such file, builds the hierarchy and saves it there
+     *  first. */
+    private static ContractionHierarchy<Location, Road> loadHierarchy(
+            File hierarchyFile, Graph<Location, Road> g) {
+        ContractionHierarchy<Location, Road> result;
+        try {
+            if (hierarchyFile.exists()) {
+                try (InputStream in = new BufferedInputStream(
+                            new FileInputStream(hierarchyFile))) {
+                    result = ContractionHierarchy.read(in, g,
+                            new TripFinder.RoadWeighting());
+                }
+            } else {
+                result = new ContractionHierarchy<Location, Road>(g,
+                        new TripFinder.RoadWeighting());
+                try (OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(hierarchyFile))) {
+                    result.write(out);
+                }
+            }
+        } catch (IOException e) {
+            throw error("bad hierarchy file %s: %s", hierarchyFile,
+                    e.getMessage());
+        }
+        return result;
+    }
+
+    /** Returns the landmark tables for G saved in LANDMARKSFILE. If there
+     *  is no such file, computes the tables and saves them there first. */
+    private static Landmarks<Location, Road> loadLandmarks(
+            File landmarksFile, Graph<Location, Road> g) {
+        Landmarks<Location, Road> result;
+        try {
+            if (landmarksFile.exists()) {
+                try (InputStream in = new BufferedInputStream(
+                            new FileInputStream(landmarksFile))) {
+                    result = Landmarks.read(in, g,
+                            new TripFinder.RoadWeighting());
+                }
+            } else {
+                result = new Landmarks<Location, Road>(g,
+                        new TripFinder.RoadWeighting(), LANDMARK_COUNT);
+                try (OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(landmarksFile))) {
+                    result.write(out);
+                }
+            }
+        } catch (IOException e) {
+            throw error("bad landmarks file %s: %s", landmarksFile,
+                    e.getMessage());
+        }
+        return result;
+    }
+
     /** Reads the map file MAPFILE and stores Locations and Distances. Throws
      *  an exception if the file does not exist or if there is some format
      *  error. */
@@ -200,9 +304,18 @@ public final class Main {
     private static List<Road> _roads;
     /** List of locations from MAPFILE. */
     private static List<Location> _locations;
+    /** Name of the landmark tables file, or null if none. */
+    private static String _landmarksFileName;
+    /** Name of the contraction hierarchy file, or null if none. */
+    private static String _hierarchyFileName;
+    /** True iff trips should be found by bidirectional search. */
+    private static boolean _bidirectional;
     /** Scanner for map file and requests. */
     private static Scanner _scn;
 
+    /** Number of landmarks chosen when computing landmark tables. */
+    static final int LANDMARK_COUNT = 16;
+
     /** Location of usage message resource. */
     static final String USAGE = "trip/Usage.txt";
 
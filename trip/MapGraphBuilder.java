@@ -2,9 +2,11 @@ package trip;
 
 import java.util.List;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import graph.Graph;
+import graph.GraphBuilder;
 import graph.DirectedGraph;
 
 /** Class that builds a graph out of a list of roads and a list of locations.
@@ -18,23 +20,27 @@ public class MapGraphBuilder {
     public static void buildMapGraph(List<Road> roads, List<Location> locations,
             DirectedGraph<Location, Road> g,
             Map<String, Graph<Location, Road>.Vertex> vmap) {
-
+        GraphBuilder<Location, Road> builder =
+            new GraphBuilder<Location, Road>(locations.size(), roads.size());
+        Map<String, Integer> indices = new HashMap<String, Integer>();
         for (Location loc : locations) {
-            vmap.put(loc.place(), g.add(loc));
+            indices.put(loc.place(), builder.addVertex(loc));
         }
 
-        String start, end;
-        Graph<Location, Road>.Vertex v, u;
+        Integer v, u;
         for (Road r : roads) {
-            start = r.start();
-            end = r.end();
-            v = vmap.get(start);
-            u = vmap.get(end);
+            v = indices.get(r.start());
+            u = indices.get(r.end());
             if (v == null || u == null) {
                 throw new TripException("location for road does not exist");
             }
 
-            g.add(v, u, r);
+            builder.addEdge(v, u, r);
+        }
+
+        List<Graph<Location, Road>.Vertex> vertices = builder.addTo(g);
+        for (Map.Entry<String, Integer> entry : indices.entrySet()) {
+            vmap.put(entry.getKey(), vertices.get(entry.getValue()));
         }
     }
 
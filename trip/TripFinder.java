@@ -11,9 +11,12 @@ import java.util.NoSuchElementException;
 
 import static trip.TripException.error;
 
+import graph.ComponentIndex;
+import graph.ContractionHierarchy;
 import graph.Graph;
-import graph.Graphs;
 import graph.Distancer;
+import graph.ShortestPathEngine;
+import graph.Weighting;
 
 /** TripFinder uses A* to find the shortest trip between every two input
  *  locations.
@@ -27,8 +30,50 @@ public class TripFinder {
      *  MAPGRAPH. */
     TripFinder(Graph<Location, Road> mapGraph,
             Map<String, Graph<Location, Road>.Vertex> vmap) {
+        this(mapGraph, vmap, false);
+    }
+
+    /** Constructor for TripFinder as above, which searches from both ends
+     *  of each trip at once iff BIDIRECTIONAL. */
+    TripFinder(Graph<Location, Road> mapGraph,
+            Map<String, Graph<Location, Road>.Vertex> vmap,
+            boolean bidirectional) {
+        this(mapGraph, vmap, bidirectional, new LocationDistancer());
+    }
+
+    /** Constructor for TripFinder as above, which estimates remaining
+     *  distances with H rather than by straight-line distance.  H must
+     *  satisfy the conditions required by ShortestPathEngine. */
+    TripFinder(Graph<Location, Road> mapGraph,
+            Map<String, Graph<Location, Road>.Vertex> vmap,
+            boolean bidirectional, Distancer<Location> h) {
+        this(mapGraph, vmap, bidirectional, h, null);
+    }
+
+    /** Constructor for TripFinder as above, which finds trips using
+     *  HIERARCHY, a contraction hierarchy of MAPGRAPH. */
+    TripFinder(Graph<Location, Road> mapGraph,
+            Map<String, Graph<Location, Road>.Vertex> vmap,
+            ContractionHierarchy<Location, Road> hierarchy) {
+        this(mapGraph, vmap, false, null, hierarchy);
+    }
+
+    /** Constructor for TripFinder over MAPGRAPH and VMAP, using HIERARCHY if
+     *  it is not null, and otherwise searching with distance estimate H,
+     *  bidirectionally iff BIDIRECTIONAL. */
+    private TripFinder(Graph<Location, Road> mapGraph,
+            Map<String, Graph<Location, Road>.Vertex> vmap,
+            boolean bidirectional, Distancer<Location> h,
+            ContractionHierarchy<Location, Road> hierarchy) {
         _mapGraph = mapGraph;
         _vmap = vmap;
+        _bidirectional = bidirectional;
+        _distancer = h;
+        _hierarchy = hierarchy;
+        _engine = new ShortestPathEngine<Location, Road>(mapGraph,
+                new RoadWeighting());
+        _components = hierarchy != null ? null
+            : new ComponentIndex<Location, Road>(mapGraph);
     }
 
     /** Returns a List of Trips between each two successive inputted
@@ -57,11 +102,25 @@ public class TripFinder {
     }
 
     /** Returns the Trip between starting location START and ending location
-     *  END. Computed using the A* algorithm. */
+     *  END. Computed using the A* algorithm, its bidirectional variant, or a
+     *  contraction hierarchy, according to how this TripFinder was
+     *  constructed.  Unless a hierarchy is used (whose queries are fast
+     *  even between unconnected locations), trips between unconnected
+     *  locations are rejected without searching. */
     private Trip findTrip(String start, String end) {
-        List<Graph<Location, Road>.Edge> elist =
-            Graphs.shortestPath(_mapGraph, _vmap.get(start),
-                    _vmap.get(end), new LocationDistancer());
+        List<Graph<Location, Road>.Edge> elist;
+        if (_components != null
+            && !_components.mayReach(_vmap.get(start), _vmap.get(end))) {
+            elist = null;
+        } else if (_hierarchy != null) {
+            elist = _hierarchy.shortestPath(_vmap.get(start), _vmap.get(end));
+        } else if (_bidirectional) {
+            elist = _engine.bidirectionalShortestPath(_vmap.get(start),
+                    _vmap.get(end), _distancer);
+        } else {
+            elist = _engine.shortestPath(_vmap.get(start), _vmap.get(end),
+                    _distancer);
+        }
         if (elist == null) {
             throw error("impossible to travel from %s to %s.", start, end);
         }
@@ -84,10 +143,29 @@ public class TripFinder {
         }
     }
 
+    /** Weights a Road by its length. */
+    static class RoadWeighting implements Weighting<Road> {
+        @Override
+        public double weight(Road r) {
+            return r.weight();
+        }
+    }
+
     /** Graph representing the map. */
     private final Graph<Location, Road> _mapGraph;
+    /** Rejects trips between unconnected parts of _mapGraph, or null if
+     *  trips are found with _hierarchy. */
+    private final ComponentIndex<Location, Road> _components;
+    /** Answers shortest-path queries on _mapGraph. */
+    private final ShortestPathEngine<Location, Road> _engine;
     /** Maps the name of a Location to its corresponding vertex in _mapGraph. */
     private final Map<String, Graph<Location, Road>.Vertex> _vmap;
+    /** True iff trips are found by bidirectional search. */
+    private final boolean _bidirectional;
+    /** Estimates remaining distances for A* searches. */
+    private final Distancer<Location> _distancer;
+    /** Contraction hierarchy of _mapGraph, or null if not used. */
+    private final ContractionHierarchy<Location, Road> _hierarchy;
     /** Scanner for input from System.in. */
     private Scanner _scn;
 